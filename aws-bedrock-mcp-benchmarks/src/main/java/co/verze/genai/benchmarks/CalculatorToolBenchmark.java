@@ -0,0 +1,39 @@
+package co.verze.genai.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.verze.genai.mcpserver.tools.CalculatorTool;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorToolBenchmark {
+    private final CalculatorTool calculatorTool = new CalculatorTool();
+    private final Map<String, Object> divide = Map.of("operation", "divide", "a", 45, "b", 9);
+    private final Map<String, Object> divideByZero = Map.of("operation", "/", "a", 45, "b", 0);
+
+    @Benchmark
+    public CallToolResult apply() {
+        return calculatorTool.apply(divide);
+    }
+
+    @Benchmark
+    public CallToolResult applyError() {
+        return calculatorTool.apply(divideByZero);
+    }
+}
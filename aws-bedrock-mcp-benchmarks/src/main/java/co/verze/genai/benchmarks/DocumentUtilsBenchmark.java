@@ -0,0 +1,71 @@
+package co.verze.genai.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import co.verze.genai.mcpclient.utils.DocumentUtils;
+import software.amazon.awssdk.core.document.Document;
+
+/**
+ * JSON to Document conversions done for every tool schema and tool call of a conversation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentUtilsBenchmark {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String schemaJson;
+    private JsonNode schemaNode;
+    private Object schemaValue;
+    private Document toolInput;
+
+    @Setup
+    public void setUp() throws Exception {
+        schemaJson = mapper.writeValueAsString(ToolDefinitions.WEATHER.inputSchema());
+        schemaNode = mapper.valueToTree(ToolDefinitions.WEATHER.inputSchema());
+        schemaValue = ToolDefinitions.WEATHER.inputSchema();
+        toolInput = DocumentUtils.fromJson("{\"operation\":\"divide\",\"a\":45,\"b\":9.5}");
+    }
+
+    @Benchmark
+    public Document convertJsonNodeToDocument() {
+        return DocumentUtils.ConvertJsonNodeToDocument(schemaNode);
+    }
+
+    @Benchmark
+    public Document readTreeThenConvert() throws Exception {
+        return DocumentUtils.ConvertJsonNodeToDocument(mapper.readTree(schemaJson));
+    }
+
+    @Benchmark
+    public Document fromJson() {
+        return DocumentUtils.fromJson(schemaJson);
+    }
+
+    @Benchmark
+    public Document fromValue() {
+        return DocumentUtils.fromValue(schemaValue);
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() {
+        return DocumentUtils.toMap(toolInput);
+    }
+}
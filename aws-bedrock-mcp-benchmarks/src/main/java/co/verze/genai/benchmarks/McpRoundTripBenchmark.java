@@ -0,0 +1,123 @@
+package co.verze.genai.benchmarks;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import co.verze.genai.mcpclient.service.InProcessTransport;
+import co.verze.genai.mcpserver.configuration.McpServerConfiguration;
+import co.verze.genai.mcpserver.tools.CalculatorTool;
+import co.verze.genai.mcpserver.tools.MultiWeatherTool;
+import co.verze.genai.mcpserver.tools.WeatherTool;
+import co.verze.genai.mcpserver.tools.WebPageTool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.ClientMcpTransport;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
+
+/**
+ * Full MCP round trips over both transports the client supports. The stdio transport runs against the real
+ * MCP server jar, started the same way the client starts it, build the server first, the jar is looked up in
+ * aws-bedrock-mcp-server/target or taken from -Dmcp.server.jar. The in-process transport hosts the same
+ * server in the benchmark JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class McpRoundTripBenchmark {
+    private final CallToolRequest calculate = new CallToolRequest("calculator",
+            Map.of("operation", "multiply", "a", 6, "b", 7));
+    @Param({"stdio", "in-process"})
+    private String transport;
+    private McpSyncClient mcpClient;
+
+    @Setup
+    public void setUp() {
+        mcpClient = McpClient.sync("stdio".equals(transport) ? stdioTransport() : inProcessTransport())
+                .requestTimeout(Duration.ofSeconds(30))
+                .build();
+        mcpClient.initialize();
+    }
+
+    private static ClientMcpTransport stdioTransport() {
+        ServerParameters params = ServerParameters.builder("java")
+                .args(
+                        "-DWEATHER_API_KEY=benchmark",
+                        "-Dspring.main.web-application-type=none",
+                        "-Dspring.main.banner-mode=off",
+                        "-Dlogging.pattern.console=",
+                        "-Dlogging.file.name=aws-bedrock-mcp-server.log",
+                        "-jar",
+                        findMcpServerJar().getAbsolutePath()
+                )
+                .build();
+        return new StdioClientTransport(params);
+    }
+
+    private static ClientMcpTransport inProcessTransport() {
+        InProcessTransport.Pair transports = InProcessTransport.create(new ObjectMapper());
+        WeatherTool weatherTool = new WeatherTool("benchmark");
+        McpServerConfiguration.createMcpSyncServer(transports.server(), new CalculatorTool(),
+                weatherTool, new MultiWeatherTool(weatherTool), new WebPageTool(), new SimpleMeterRegistry());
+        return transports.client();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mcpClient.closeGracefully();
+    }
+
+    @Benchmark
+    public CallToolResult callTool() {
+        return mcpClient.callTool(calculate);
+    }
+
+    @Benchmark
+    public ListToolsResult listTools() {
+        return mcpClient.listTools();
+    }
+
+    @Benchmark
+    public Object ping() {
+        return mcpClient.ping();
+    }
+
+    private static File findMcpServerJar() {
+        String configured = System.getProperty("mcp.server.jar");
+        if (configured != null) {
+            return new File(configured);
+        }
+        for (String path : new String[]{"./aws-bedrock-mcp-server/target", "../aws-bedrock-mcp-server/target"}) {
+            File[] jars = new File(path).listFiles(file ->
+                    file.isFile() && file.getName().matches("aws-bedrock-mcp-server.*-exec\\.jar"));
+            if (jars != null && jars.length > 0) {
+                return jars[0];
+            }
+        }
+        throw new IllegalStateException("Unable to find the AWS Bedrock MCP Server jar, build it or set -Dmcp.server.jar");
+    }
+}
@@ -0,0 +1,41 @@
+package co.verze.genai.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.verze.genai.mcpclient.service.ToolCatalog;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+
+/**
+ * Building the Bedrock tool configuration from the MCP tool list, done whenever the catalog is rebuilt,
+ * against the cached lookup every other request pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolCatalogBenchmark {
+    private final ToolCatalog toolCatalog = new ToolCatalog(() -> ToolDefinitions.LIST_TOOLS_RESULT);
+
+    @Benchmark
+    public ToolConfiguration convertToToolConfiguration() {
+        toolCatalog.invalidate();
+        return toolCatalog.getToolConfiguration();
+    }
+
+    @Benchmark
+    public ToolConfiguration cachedToolConfiguration() {
+        return toolCatalog.getToolConfiguration();
+    }
+}
@@ -0,0 +1,22 @@
+package co.verze.genai.benchmarks;
+
+import java.util.List;
+
+import co.verze.genai.mcpserver.tools.CalculatorTool;
+import co.verze.genai.mcpserver.tools.WeatherTool;
+import co.verze.genai.mcpserver.tools.WebPageTool;
+import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
+import io.modelcontextprotocol.spec.McpSchema.Tool;
+
+/**
+ * The tool definitions the MCP server registers, without starting the server.
+ */
+final class ToolDefinitions {
+    static final Tool CALCULATOR = new CalculatorTool().getToolDefinition();
+    static final Tool WEATHER = new WeatherTool("benchmark").getToolDefinition();
+    static final Tool WEB_PAGE = new WebPageTool().getToolDefinition();
+    static final ListToolsResult LIST_TOOLS_RESULT = new ListToolsResult(List.of(CALCULATOR, WEATHER, WEB_PAGE), null);
+
+    private ToolDefinitions() {
+    }
+}
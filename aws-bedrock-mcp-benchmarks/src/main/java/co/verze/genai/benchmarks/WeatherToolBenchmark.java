@@ -0,0 +1,40 @@
+package co.verze.genai.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.verze.genai.mcpserver.tools.WeatherTool;
+
+/**
+ * Parsing a saved weatherapi.com response, the HTTP call itself is left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherToolBenchmark {
+    private final WeatherTool weatherTool = new WeatherTool("benchmark");
+    private String body;
+
+    @Setup
+    public void setUp() throws Exception {
+        body = Resources.read("weather/current.json");
+    }
+
+    @Benchmark
+    public WeatherTool.Response parseResponse() throws Exception {
+        return weatherTool.parseResponse(body);
+    }
+}
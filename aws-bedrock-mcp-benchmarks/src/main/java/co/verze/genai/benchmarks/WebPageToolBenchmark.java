@@ -0,0 +1,47 @@
+package co.verze.genai.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.verze.genai.mcpserver.tools.WebPageTool;
+
+/**
+ * HTML to Markdown conversion over a corpus of saved pages, the fetch itself is left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebPageToolBenchmark {
+    @Param({"article.html", "documentation.html", "index.html"})
+    public String page;
+
+    private final WebPageTool webPageTool = new WebPageTool();
+    private String html;
+
+    @Setup
+    public void setUp() throws Exception {
+        html = Resources.read("pages/" + page);
+    }
+
+    @Benchmark
+    public String parseAndConvert() {
+        Document document = Jsoup.parse(html, "https://example.com/");
+        return webPageTool.toMarkdown(document);
+    }
+}
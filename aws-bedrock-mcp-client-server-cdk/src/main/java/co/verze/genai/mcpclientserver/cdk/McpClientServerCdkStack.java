@@ -21,6 +21,10 @@ import java.util.Map;
 public class McpClientServerCdkStack extends Stack {
 
     public static final String WEATHER_API_KEY = "WEATHER_API_KEY";
+    public static final String MCP_TRANSPORT = "MCP_TRANSPORT";
+    // Above 29 seconds the account needs a raised API Gateway integration timeout quota
+    public static final String INTEGRATION_TIMEOUT_SECONDS = "INTEGRATION_TIMEOUT_SECONDS";
+    private static final int DEFAULT_INTEGRATION_TIMEOUT_SECONDS = 29;
 
     public McpClientServerCdkStack(final Construct scope, final String id) {
         this(scope, id, null);
@@ -30,7 +34,14 @@ public class McpClientServerCdkStack extends Stack {
         super(scope, id, props);
 
         // expect parameter to be passed in via CDK command
-        Map<String, String> environment = Map.of(WEATHER_API_KEY, tryGetContext(WEATHER_API_KEY));
+        // The MCP server tools run inside the function, no second JVM per pooled client
+        Map<String, String> environment = Map.of(
+                WEATHER_API_KEY, tryGetContext(WEATHER_API_KEY),
+                MCP_TRANSPORT, "in-process");
+        Object integrationTimeoutContext = this.getNode().tryGetContext(INTEGRATION_TIMEOUT_SECONDS);
+        int integrationTimeoutSeconds = integrationTimeoutContext == null
+                ? DEFAULT_INTEGRATION_TIMEOUT_SECONDS
+                : Integer.parseInt(integrationTimeoutContext.toString());
 
         // Find Lambda deployment package
         File mcpClientAsset = GetFileThatStartsWith("../aws-bedrock-mcp-client/target", "aws-bedrock-mcp-client");
@@ -55,11 +66,21 @@ public class McpClientServerCdkStack extends Stack {
                 .code(Code.fromAsset(mcpClientAsset.getAbsolutePath())) // Directory containing the JAR files
                 .handler("co.verze.genai.mcpclient.AwsProxyRequestHandler::handleRequest")
                 .role(lambdaRole)
-                .memorySize(1024)
-                .timeout(Duration.seconds(30))
+                .memorySize(512)
+                // Outlives the integration, so API Gateway times out first with a clear 504
+                .timeout(Duration.seconds(integrationTimeoutSeconds + 1))
                 .environment(environment)
                 .build();
 
+        // SnapStart restores published versions from a snapshot taken after init, so the API targets an alias
+        ((CfnFunction) mcpClientFunction.getNode().getDefaultChild()).setSnapStart(CfnFunction.SnapStartProperty.builder()
+                .applyOn("PublishedVersions")
+                .build());
+        Alias mcpClientAlias = Alias.Builder.create(this, "McpClientFunctionLive")
+                .aliasName("live")
+                .version(mcpClientFunction.getCurrentVersion())
+                .build();
+
         // Create the API
         RestApi api = RestApi.Builder.create(this, "McpClientApi")
                 .restApiName("MCP Client API")
@@ -68,9 +89,10 @@ public class McpClientServerCdkStack extends Stack {
                 .build();
 
         // Create Lambda integration that explicitly converts to text
-        LambdaIntegration lambdaIntegration = LambdaIntegration.Builder.create(mcpClientFunction)
+        LambdaIntegration lambdaIntegration = LambdaIntegration.Builder.create(mcpClientAlias)
                 .proxy(true)
                 .contentHandling(ContentHandling.CONVERT_TO_TEXT)
+                .timeout(Duration.seconds(integrationTimeoutSeconds))
                 .build();
 
         // Add proxy resource
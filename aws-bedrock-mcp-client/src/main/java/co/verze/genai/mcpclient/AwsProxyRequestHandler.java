@@ -3,10 +3,14 @@ package co.verze.genai.mcpclient;
 import com.amazonaws.serverless.exceptions.ContainerInitializationException;
 import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
 import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.serverless.proxy.internal.testutils.AwsProxyRequestBuilder;
+import com.amazonaws.serverless.proxy.internal.testutils.MockLambdaContext;
 import com.amazonaws.serverless.proxy.spring.SpringBootLambdaContainerHandler;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.crac.Core;
+import org.crac.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,15 +19,30 @@ import java.util.HashMap;
 /**
  * AWS Lambda handler for the MCP client application.
  * This class initializes the Spring context and handles API Gateway requests.
+ * With SnapStart a request is sent through the whole stack before the snapshot is taken,
+ * so the restored function starts with Spring MVC and the serverless container warmed up.
  */
 public class AwsProxyRequestHandler implements RequestHandler<AwsProxyRequest, AwsProxyResponse> {
     private static final Logger logger = LoggerFactory.getLogger(AwsProxyRequestHandler.class);
     private static SpringBootLambdaContainerHandler<AwsProxyRequest, AwsProxyResponse> handler;
+    // Held strongly, the CRaC context only keeps weak references
+    private static final Resource PRIMING = new Resource() {
+        @Override
+        public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+            logger.info("Priming request handling before checkpoint");
+            handler.proxy(new AwsProxyRequestBuilder("/hello", "GET").build(), new MockLambdaContext());
+        }
+
+        @Override
+        public void afterRestore(org.crac.Context<? extends Resource> context) {
+        }
+    };
 
     static {
         logger.info("Initializing Stream Handler spring context");
         try {
             handler = SpringBootLambdaContainerHandler.getAwsProxyHandler(McpClientApplication.class);
+            Core.getGlobalContext().register(PRIMING);
         } catch (ContainerInitializationException e) {
             logger.error("Could not initialize Spring Boot application", e);
             throw new RuntimeException("Could not initialize Spring Boot application", e);
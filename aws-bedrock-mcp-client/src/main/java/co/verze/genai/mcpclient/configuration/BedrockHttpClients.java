@@ -0,0 +1,125 @@
+package co.verze.genai.mcpclient.configuration;
+
+import java.time.Duration;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.crt.TcpKeepAliveConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+/**
+ * Builds the HTTP clients the Bedrock clients run on, with the same pool settings whatever the implementation.
+ */
+public final class BedrockHttpClients {
+    private static final Duration CRT_KEEP_ALIVE_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration CRT_KEEP_ALIVE_TIMEOUT = Duration.ofSeconds(10);
+
+    private BedrockHttpClients() {
+    }
+
+    /**
+     * HTTP client of the blocking Bedrock client.
+     */
+    public enum HttpClientType {
+        /** Pooled, the SDK default */
+        APACHE,
+        /** No pool of its own, connections are reused through the JDK keep-alive cache, smallest and fastest to load */
+        URL_CONNECTION,
+        /** The AWS Common Runtime, native code with the lowest per request overhead */
+        CRT
+    }
+
+    /**
+     * HTTP client of the non-blocking Bedrock client.
+     */
+    public enum AsyncHttpClientType {
+        /** The SDK default */
+        NETTY,
+        CRT
+    }
+
+    /**
+     * Connection pool settings.
+     *
+     * @param maxConnections     Connections kept per client
+     * @param connectionTimeout  Time allowed to open a connection, TLS handshake included
+     * @param acquisitionTimeout Time a request may wait for a pooled connection before failing
+     * @param maxIdleTime        Idle connections are closed after this long
+     * @param timeToLive         Connections are replaced after this long, null to keep them as long as they work
+     * @param tcpKeepAlive       Send TCP keep-alive probes so idle connections aren't dropped by NATs and load balancers
+     */
+    public record PoolSettings(int maxConnections, Duration connectionTimeout, Duration acquisitionTimeout,
+                               Duration maxIdleTime, Duration timeToLive, boolean tcpKeepAlive) {
+    }
+
+    public static SdkHttpClient.Builder<?> httpClient(HttpClientType type, PoolSettings settings) {
+        return switch (type) {
+            case APACHE -> {
+                ApacheHttpClient.Builder builder = ApacheHttpClient.builder()
+                        .maxConnections(settings.maxConnections())
+                        .connectionTimeout(settings.connectionTimeout())
+                        .connectionAcquisitionTimeout(settings.acquisitionTimeout())
+                        .connectionMaxIdleTime(settings.maxIdleTime())
+                        .useIdleConnectionReaper(true)
+                        .tcpKeepAlive(settings.tcpKeepAlive());
+                if (settings.timeToLive() != null) {
+                    builder.connectionTimeToLive(settings.timeToLive());
+                }
+                yield builder;
+            }
+            case URL_CONNECTION -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(settings.connectionTimeout());
+            case CRT -> {
+                AwsCrtHttpClient.Builder builder = AwsCrtHttpClient.builder()
+                        .maxConcurrency(settings.maxConnections())
+                        .connectionTimeout(settings.connectionTimeout())
+                        .connectionAcquisitionTimeout(settings.acquisitionTimeout())
+                        .connectionMaxIdleTime(settings.maxIdleTime());
+                if (settings.tcpKeepAlive()) {
+                    builder.tcpKeepAliveConfiguration(crtKeepAlive());
+                }
+                yield builder;
+            }
+        };
+    }
+
+    public static SdkAsyncHttpClient.Builder<?> asyncHttpClient(AsyncHttpClientType type, PoolSettings settings) {
+        return switch (type) {
+            case NETTY -> {
+                NettyNioAsyncHttpClient.Builder builder = NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(settings.maxConnections())
+                        .connectionTimeout(settings.connectionTimeout())
+                        .connectionAcquisitionTimeout(settings.acquisitionTimeout())
+                        .connectionMaxIdleTime(settings.maxIdleTime())
+                        .useIdleConnectionReaper(true)
+                        .tcpKeepAlive(settings.tcpKeepAlive());
+                if (settings.timeToLive() != null) {
+                    builder.connectionTimeToLive(settings.timeToLive());
+                }
+                yield builder;
+            }
+            case CRT -> {
+                AwsCrtAsyncHttpClient.Builder builder = AwsCrtAsyncHttpClient.builder()
+                        .maxConcurrency(settings.maxConnections())
+                        .connectionTimeout(settings.connectionTimeout())
+                        .connectionAcquisitionTimeout(settings.acquisitionTimeout())
+                        .connectionMaxIdleTime(settings.maxIdleTime());
+                if (settings.tcpKeepAlive()) {
+                    builder.tcpKeepAliveConfiguration(crtKeepAlive());
+                }
+                yield builder;
+            }
+        };
+    }
+
+    private static TcpKeepAliveConfiguration crtKeepAlive() {
+        return TcpKeepAliveConfiguration.builder()
+                .keepAliveInterval(CRT_KEEP_ALIVE_INTERVAL)
+                .keepAliveTimeout(CRT_KEEP_ALIVE_TIMEOUT)
+                .build();
+    }
+}
@@ -2,6 +2,11 @@ package co.verze.genai.mcpclient.configuration;
 
 import java.io.File;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,16 +14,45 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.ObjectProvider;
 
+import co.verze.genai.mcpclient.service.AgentLoop;
+import co.verze.genai.mcpclient.service.AgentMetrics;
+import co.verze.genai.mcpclient.service.AsyncAgentLoop;
+import co.verze.genai.mcpclient.service.BatchQueryRunner;
+import co.verze.genai.mcpclient.service.BedrockHttpMetrics;
+import co.verze.genai.mcpclient.service.ConversationSessionStore;
+import co.verze.genai.mcpclient.service.ConverseRequestFactory;
+import co.verze.genai.mcpclient.service.HistoryCompactor;
+import co.verze.genai.mcpclient.service.InProcessTransport;
+import co.verze.genai.mcpclient.service.McpClientPool;
+import co.verze.genai.mcpclient.service.ModelRouter;
+import co.verze.genai.mcpclient.service.QueryBudget;
+import co.verze.genai.mcpclient.service.StreamingAgent;
+import co.verze.genai.mcpclient.service.SyncAgentLoop;
+import co.verze.genai.mcpclient.service.ToolCatalog;
+import co.verze.genai.mcpclient.service.ToolResultCache;
+import co.verze.genai.mcpclient.service.ToolTurnExecutor;
+import co.verze.genai.mcpserver.configuration.McpServerConfiguration;
+import co.verze.genai.mcpserver.configuration.ToolsConfiguration;
+import co.verze.genai.mcpserver.tools.CalculatorTool;
+import co.verze.genai.mcpserver.tools.MultiWeatherTool;
+import co.verze.genai.mcpserver.tools.WeatherTool;
+import co.verze.genai.mcpserver.tools.WebPageTool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.client.McpAsyncClient;
 import io.modelcontextprotocol.client.McpClient;
-import io.modelcontextprotocol.client.McpSyncClient;
 import io.modelcontextprotocol.client.transport.ServerParameters;
 import io.modelcontextprotocol.client.transport.StdioClientTransport;
 import io.modelcontextprotocol.spec.ClientMcpTransport;
 import io.modelcontextprotocol.spec.McpSchema.ClientCapabilities;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 
 /**
@@ -31,68 +65,350 @@ public class McpClientConfiguration {
     private String awsRegion;
     @Value("${tools.weather-api-key}")
     private String weatherApiKey;
+    @Value("${tools.max-concurrency:4}")
+    private int toolMaxConcurrency;
+    @Value("${tools.timeout-seconds:30}")
+    private int toolTimeoutSeconds;
+    @Value("${agent.execution-mode:sync}")
+    private AgentLoop.ExecutionMode executionMode;
+    @Value("${query.stream-timeout-seconds:300}")
+    private int streamTimeoutSeconds;
+    @Value("${query.batch.max-parallelism:8}")
+    private int batchMaxParallelism;
+    @Value("${query.batch.max-queries:1000}")
+    private int batchMaxQueries;
+    @Value("${query.batch.timeout-seconds:3600}")
+    private int batchTimeoutSeconds;
+    @Value("${bedrock.prompt-caching:true}")
+    private boolean promptCaching;
+    @Value("${sessions.idle-timeout-minutes:30}")
+    private int sessionIdleTimeoutMinutes;
+    @Value("${sessions.max-sessions:1000}")
+    private int maxSessions;
+    @Value("${sessions.max-messages:50}")
+    private int maxSessionMessages;
+    @Value("${tools.cache.max-entries:1000}")
+    private int toolCacheMaxEntries;
+    @Value("${tools.cache.calculator-ttl-seconds:-1}")
+    private long calculatorTtlSeconds;
+    @Value("${tools.cache.weather-ttl-seconds:300}")
+    private long weatherTtlSeconds;
+    @Value("${tools.cache.web-page-ttl-seconds:600}")
+    private long webPageTtlSeconds;
+    @Value("${mcp.pool.min-size:1}")
+    private int poolMinSize;
+    @Value("${mcp.pool.max-size:4}")
+    private int poolMaxSize;
+    @Value("${mcp.pool.scale-up-queue-depth:2}")
+    private int poolScaleUpQueueDepth;
+    @Value("${bedrock.http.client:apache}")
+    private BedrockHttpClients.HttpClientType bedrockHttpClient;
+    @Value("${bedrock.http.async-client:netty}")
+    private BedrockHttpClients.AsyncHttpClientType bedrockAsyncHttpClient;
+    @Value("${bedrock.http.max-connections:50}")
+    private int bedrockMaxConnections;
+    @Value("${bedrock.http.connection-timeout-millis:2000}")
+    private long bedrockConnectionTimeoutMillis;
+    @Value("${bedrock.http.acquisition-timeout-seconds:10}")
+    private long bedrockAcquisitionTimeoutSeconds;
+    @Value("${bedrock.http.max-idle-seconds:60}")
+    private long bedrockMaxIdleSeconds;
+    @Value("${bedrock.http.connection-ttl-seconds:-1}")
+    private long bedrockConnectionTtlSeconds;
+    @Value("${bedrock.http.tcp-keep-alive:true}")
+    private boolean bedrockTcpKeepAlive;
+    @Value("${bedrock.http.warm-connections:2}")
+    private int bedrockWarmConnections;
+    @Value("${bedrock.api-call-timeout-seconds:0}")
+    private long bedrockApiCallTimeoutSeconds;
+    @Value("${bedrock.api-call-attempt-timeout-seconds:0}")
+    private long bedrockApiCallAttemptTimeoutSeconds;
+    @Value("${mcp.transport:stdio}")
+    private McpTransportMode mcpTransport;
+    @Value("${agent.temperature:0.8}")
+    private float temperature;
+    @Value("${agent.budget.max-turns:10}")
+    private int budgetMaxTurns;
+    @Value("${agent.budget.max-input-tokens:200000}")
+    private long budgetMaxInputTokens;
+    @Value("${agent.budget.max-output-tokens:8000}")
+    private long budgetMaxOutputTokens;
+    @Value("${agent.budget.max-tokens-per-turn:4096}")
+    private int budgetMaxTokensPerTurn;
+    @Value("${agent.budget.max-duration-seconds:120}")
+    private int budgetMaxDurationSeconds;
+    @Value("${agent.compaction.max-tool-result-chars:20000}")
+    private int compactionMaxToolResultChars;
+    @Value("${agent.compaction.keep-tool-result-turns:2}")
+    private int compactionKeepToolResultTurns;
+    @Value("${agent.compaction.target-tokens:30000}")
+    private long compactionTargetTokens;
+    @Value("${agent.compaction.summary-chars:300}")
+    private int compactionSummaryChars;
+    @Value("${agent.routing.small-models:us.anthropic.claude-3-5-haiku-20241022-v1:0}")
+    private List<String> smallModels;
+    @Value("${agent.routing.large-models:us.anthropic.claude-sonnet-4-20250514-v1:0}")
+    private List<String> largeModels;
+    @Value("${agent.routing.light-tools:calculator,get_current_weather,get_weather_for_locations}")
+    private Set<String> lightTools;
+    @Value("${agent.routing.small-query-max-chars:200}")
+    private int smallQueryMaxChars;
+
+    /**
+     * How the client reaches the MCP server tools.
+     */
+    public enum McpTransportMode {
+        /** A server process per client, talking JSON over stdin and stdout, isolates the tools from the client */
+        STDIO,
+        /** A server hosted in this JVM, messages are handed over as objects */
+        IN_PROCESS
+    }
 
     @Bean
-    public BedrockRuntimeClient bedrockRuntimeClient() {
+    public BedrockRuntimeClient bedrockRuntimeClient(MeterRegistry meterRegistry) {
+        logger.info("Creating Bedrock client on the {} HTTP client", bedrockHttpClient);
         return BedrockRuntimeClient.builder()
                 .region(Region.of(awsRegion))
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(BedrockHttpClients.httpClient(bedrockHttpClient, bedrockPoolSettings()))
+                .overrideConfiguration(bedrockOverrideConfiguration(new BedrockHttpMetrics(meterRegistry, "sync")))
                 .build();
     }
 
-    @Bean(name = "stdio", destroyMethod = "close")
-    public McpSyncClient stdioMcpSyncClient(@Qualifier("stdioTransport") ClientMcpTransport transport) {
-        logger.info("Initializing McpSyncClient for Stdio MCP Server");
+    @Bean(destroyMethod = "close")
+    public BedrockRuntimeAsyncClient bedrockRuntimeAsyncClient(MeterRegistry meterRegistry) {
+        logger.info("Creating Bedrock async client on the {} HTTP client", bedrockAsyncHttpClient);
+        return BedrockRuntimeAsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(BedrockHttpClients.asyncHttpClient(bedrockAsyncHttpClient, bedrockPoolSettings()))
+                .overrideConfiguration(bedrockOverrideConfiguration(new BedrockHttpMetrics(meterRegistry, "async")))
+                .build();
+    }
+
+    @Bean
+    public ConverseRequestFactory converseRequestFactory() {
+        return new ConverseRequestFactory(promptCaching, temperature, new HistoryCompactor(new HistoryCompactor.Policy(
+                compactionMaxToolResultChars, compactionKeepToolResultTurns, compactionTargetTokens,
+                compactionSummaryChars)));
+    }
+
+    @Bean
+    public ModelRouter modelRouter() {
+        logger.info("Routing queries between small models {} and large models {}", smallModels, largeModels);
+        return new ModelRouter(smallModels, largeModels, lightTools, smallQueryMaxChars);
+    }
+
+    @Bean
+    public QueryBudget queryBudget() {
+        return new QueryBudget(budgetMaxTurns, budgetMaxInputTokens, budgetMaxOutputTokens, budgetMaxTokensPerTurn,
+                Duration.ofSeconds(budgetMaxDurationSeconds));
+    }
+
+    @Bean
+    public ConversationSessionStore conversationSessionStore() {
+        return new ConversationSessionStore(Duration.ofMinutes(sessionIdleTimeoutMinutes), maxSessions, maxSessionMessages);
+    }
+
+    @Bean
+    public AgentMetrics agentMetrics(MeterRegistry meterRegistry) {
+        return new AgentMetrics(meterRegistry);
+    }
+
+    @Bean
+    public AgentLoop agentLoop(BedrockRuntimeClient bedrockClient,
+                               BedrockRuntimeAsyncClient bedrockAsyncClient,
+                               ConverseRequestFactory converseRequestFactory,
+                               ToolTurnExecutor toolTurnExecutor,
+                               AgentMetrics agentMetrics) {
+        logger.info("Creating agent loop in {} execution mode", executionMode);
+        return switch (executionMode) {
+            case SYNC -> new SyncAgentLoop(bedrockClient, converseRequestFactory, toolTurnExecutor, agentMetrics);
+            case ASYNC -> new AsyncAgentLoop(bedrockAsyncClient, converseRequestFactory, toolTurnExecutor, agentMetrics);
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public StreamingAgent streamingAgent(BedrockRuntimeAsyncClient bedrockAsyncClient,
+                                         ConverseRequestFactory converseRequestFactory,
+                                         ToolTurnExecutor toolTurnExecutor,
+                                         AgentMetrics agentMetrics) {
+        return new StreamingAgent(bedrockAsyncClient, converseRequestFactory, toolTurnExecutor, agentMetrics,
+                Duration.ofSeconds(streamTimeoutSeconds));
+    }
+
+    @Bean(destroyMethod = "close")
+    public BatchQueryRunner batchQueryRunner(AgentLoop agentLoop, ToolCatalog toolCatalog, ModelRouter modelRouter,
+                                             ObjectMapper objectMapper) {
+        return new BatchQueryRunner(agentLoop, toolCatalog, modelRouter, objectMapper, batchMaxParallelism,
+                batchMaxQueries, Duration.ofSeconds(batchTimeoutSeconds));
+    }
+
+    @Bean(destroyMethod = "close")
+    public McpClientPool mcpClientPool(ToolCatalog toolCatalog, MeterRegistry meterRegistry, Environment environment) {
+        logger.info("Creating MCP client pool with {} transport", mcpTransport);
+        // Every pooled client gets its own MCP server, a process for stdio or a server instance in process
+        Supplier<ClientMcpTransport> transportFactory = switch (mcpTransport) {
+            case STDIO -> this::createStdioTransport;
+            case IN_PROCESS -> inProcessTransportFactory(meterRegistry, environment);
+        };
+        return new McpClientPool(() -> createMcpClient(transportFactory.get(), toolCatalog),
+                poolMinSize, poolMaxSize, poolScaleUpQueueDepth);
+    }
+
+    @Bean
+    public ToolCatalog toolCatalog(ObjectProvider<McpClientPool> mcpClientPool) {
+        // The pool is resolved lazily as its clients register with the catalog for change notifications
+        return new ToolCatalog(() -> mcpClientPool.getObject().listTools());
+    }
+
+    @Bean
+    public ToolResultCache toolResultCache(McpClientPool mcpClientPool) {
+        return new ToolResultCache(mcpClientPool, Map.of(
+                "calculator", toTtl(calculatorTtlSeconds),
+                "get_current_weather", toTtl(weatherTtlSeconds),
+                "get_weather_for_locations", toTtl(weatherTtlSeconds),
+                "get_web_page", toTtl(webPageTtlSeconds)),
+                toolCacheMaxEntries);
+    }
+
+    @Bean(name = "startup", destroyMethod = "close")
+    public StartupInitializer startupInitializer(McpClientPool mcpClientPool, ToolCatalog toolCatalog,
+                                                 BedrockRuntimeClient bedrockClient,
+                                                 BedrockRuntimeAsyncClient bedrockAsyncClient,
+                                                 ModelRouter modelRouter) {
+        // Also the "startup" health indicator of the readiness group
+        return new StartupInitializer(mcpClientPool, toolCatalog, bedrockClient, bedrockAsyncClient,
+                bedrockWarmConnections, modelRouter.defaultModel()).start();
+    }
+
+    @Bean
+    public SnapshotLifecycle snapshotLifecycle(McpClientPool mcpClientPool, ToolCatalog toolCatalog,
+                                               StartupInitializer startupInitializer) {
+        // Only takes effect when running with SnapStart or a CRaC enabled JVM
+        return new SnapshotLifecycle(mcpClientPool, toolCatalog, startupInitializer).register();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ToolTurnExecutor toolTurnExecutor(ToolResultCache toolResultCache, AgentMetrics agentMetrics) {
+        logger.info("Creating ToolTurnExecutor with max concurrency {} and tool timeout {}s", toolMaxConcurrency, toolTimeoutSeconds);
+        return new ToolTurnExecutor(toolResultCache, toolMaxConcurrency, Duration.ofSeconds(toolTimeoutSeconds), agentMetrics);
+    }
+
+    private BedrockHttpClients.PoolSettings bedrockPoolSettings() {
+        return new BedrockHttpClients.PoolSettings(
+                bedrockMaxConnections,
+                Duration.ofMillis(bedrockConnectionTimeoutMillis),
+                Duration.ofSeconds(bedrockAcquisitionTimeoutSeconds),
+                Duration.ofSeconds(bedrockMaxIdleSeconds),
+                bedrockConnectionTtlSeconds < 0 ? null : Duration.ofSeconds(bedrockConnectionTtlSeconds),
+                bedrockTcpKeepAlive);
+    }
+
+    // Zero leaves the timeouts unset, a call is then only bounded by the socket timeouts and the retries
+    private ClientOverrideConfiguration bedrockOverrideConfiguration(BedrockHttpMetrics metrics) {
+        ClientOverrideConfiguration.Builder builder = ClientOverrideConfiguration.builder()
+                .addMetricPublisher(metrics);
+        if (bedrockApiCallTimeoutSeconds > 0) {
+            builder.apiCallTimeout(Duration.ofSeconds(bedrockApiCallTimeoutSeconds));
+        }
+        if (bedrockApiCallAttemptTimeoutSeconds > 0) {
+            builder.apiCallAttemptTimeout(Duration.ofSeconds(bedrockApiCallAttemptTimeoutSeconds));
+        }
+        return builder.build();
+    }
+
+    // A negative TTL caches forever, zero disables caching for the tool
+    private static Duration toTtl(long seconds) {
+        return seconds < 0 ? ToolResultCache.FOREVER : Duration.ofSeconds(seconds);
+    }
+
+    private McpAsyncClient createMcpClient(ClientMcpTransport transport, ToolCatalog toolCatalog) {
+        logger.info("Initializing McpAsyncClient for {} MCP Server", mcpTransport);
 
-        // Create a sync client with custom configuration
-        McpSyncClient client = McpClient.sync(transport)
+        // Create an async client with custom configuration, the pool wraps it for blocking callers
+        McpAsyncClient client = McpClient.async(transport)
                 .requestTimeout(Duration.ofSeconds(30))
                 .capabilities(ClientCapabilities.builder()
                         .roots(true)      // Enable roots capability
                         .sampling()       // Enable sampling capability
                         .build())
+                // Rebuild the catalog on tools/list_changed
+                .toolsChangeConsumer(tools -> Mono.fromRunnable(() -> toolCatalog.refresh(tools)))
                 .build();
 
-        // Initialize connection
-        client.initialize();
+        // Initialize connection, anything cached from a previous connection is stale
+        client.initialize().block();
+        toolCatalog.invalidate();
 
         return client;
     }
 
-    @Bean(name = "stdioTransport")
-    public ClientMcpTransport createStdioTransport() {
+    private Supplier<ClientMcpTransport> inProcessTransportFactory(MeterRegistry meterRegistry,
+                                                                   Environment environment) {
+        // One set of tools, configured by the same tools.* properties as the server, is shared by the servers,
+        // so they share the weather and web page caches too
+        CalculatorTool calculatorTool = new CalculatorTool();
+        WeatherTool weatherTool = ToolsConfiguration.createWeatherTool(environment);
+        MultiWeatherTool multiWeatherTool = ToolsConfiguration.createMultiWeatherTool(weatherTool, environment);
+        WebPageTool webPageTool = ToolsConfiguration.createWebPageTool(environment);
+        ObjectMapper objectMapper = new ObjectMapper();
+        return () -> {
+            logger.info("Creating in process MCP transport");
+            InProcessTransport.Pair transports = InProcessTransport.create(objectMapper);
+            // The server lives as long as its transport, closing the client closes both ends
+            McpServerConfiguration.createMcpSyncServer(transports.server(), calculatorTool, weatherTool,
+                    multiWeatherTool, webPageTool, meterRegistry);
+            return transports.client();
+        };
+    }
+
+    private ClientMcpTransport createStdioTransport() {
         logger.info("Creating StdioClientTransport");
 
-        String mcpServerFilePattern = "aws-bedrock-mcp-server.*.jar";
-        File mcpServerAsset = GetFileThatStartsWith("./aws-bedrock-mcp-server/target", mcpServerFilePattern);
-        if (mcpServerAsset == null) {
-            mcpServerAsset = GetFileThatStartsWith("../aws-bedrock-mcp-server/target", mcpServerFilePattern);
+        List<String> args = new ArrayList<>(List.of(
+                "-DWEATHER_API_KEY=" + weatherApiKey,
+                "-Dspring.main.web-application-type=none",  // Disable web server
+                "-Dspring.main.banner-mode=off",
+                "-Dlogging.pattern.console=",  // Disable console logging pattern
+                "-Dlogging.file.name=aws-bedrock-mcp-server.log"
+        ));
+
+        // Prefer the native image of the server, it starts in milliseconds rather than seconds
+        File nativeMcpServer = findMcpServerAsset("aws-bedrock-mcp-server(\\.exe)?");
+        String command;
+        if (nativeMcpServer != null && nativeMcpServer.canExecute()) {
+            command = nativeMcpServer.getAbsolutePath();
+            logger.info("Starting native MCP server process with: {}", command);
+        } else {
+            File mcpServerAsset = findMcpServerAsset("aws-bedrock-mcp-server.*-exec\\.jar");
             if (mcpServerAsset == null) {
-                mcpServerAsset = GetFileThatStartsWith("./lib", mcpServerFilePattern);
-                if (mcpServerAsset == null) {
-                    throw new RuntimeException("Unable to find AWS Bedrock MCP Server library code");
-                }
+                throw new RuntimeException("Unable to find AWS Bedrock MCP Server library code");
             }
+            command = "java";
+            args.add("-jar");
+            args.add(mcpServerAsset.getAbsolutePath());
+            logger.info("Starting MCP server process with: {}", mcpServerAsset.getAbsolutePath());
         }
 
-        logger.info("Starting MCP server process with: {}", mcpServerAsset.getAbsolutePath());
-
-        // Using StdioClientTransport with local MCP server jar
-        ServerParameters params = ServerParameters.builder("java")
-                .args(
-                        "-DWEATHER_API_KEY=" + weatherApiKey,
-                        "-Dspring.main.web-application-type=none",  // Disable web server
-                        "-Dspring.main.banner-mode=off",
-                        "-Dlogging.pattern.console=",  // Disable console logging pattern
-                        "-Dlogging.file.name=aws-bedrock-mcp-server.log",
-                        "-jar",
-                        mcpServerAsset.getAbsolutePath()
-                )
+        // Using StdioClientTransport with local MCP server executable
+        ServerParameters params = ServerParameters.builder(command)
+                .args(args)
                 .build();
 
         return new StdioClientTransport(params);
     }
 
+    private static File findMcpServerAsset(String mcpServerFilePattern) {
+        File mcpServerAsset = GetFileThatStartsWith("./aws-bedrock-mcp-server/target", mcpServerFilePattern);
+        if (mcpServerAsset == null) {
+            mcpServerAsset = GetFileThatStartsWith("../aws-bedrock-mcp-server/target", mcpServerFilePattern);
+            if (mcpServerAsset == null) {
+                mcpServerAsset = GetFileThatStartsWith("./lib", mcpServerFilePattern);
+            }
+        }
+        return mcpServerAsset;
+    }
 
     private static File GetFileThatStartsWith(String path, String filePattern) {
         File folder = new File(path);
@@ -0,0 +1,67 @@
+package co.verze.genai.mcpclient.configuration;
+
+import java.util.Map;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.verze.genai.mcpclient.service.McpClientPool;
+import co.verze.genai.mcpclient.service.ToolCatalog;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+
+/**
+ * CRaC hooks that make the client safe to snapshot with Lambda SnapStart.
+ * <p>
+ * Before the checkpoint the hot paths are primed, the tool catalog, a tool call with its Jackson and
+ * Document conversions and a round trip to Bedrock, then the MCP server processes are stopped as a child
+ * process can't be part of a snapshot. After restore the servers are relaunched in the background and the
+ * Bedrock connections, which did not survive the snapshot, are opened again.
+ */
+public class SnapshotLifecycle implements Resource {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotLifecycle.class);
+    private final McpClientPool mcpClientPool;
+    private final ToolCatalog toolCatalog;
+    private final StartupInitializer startupInitializer;
+
+    public SnapshotLifecycle(McpClientPool mcpClientPool, ToolCatalog toolCatalog,
+                             StartupInitializer startupInitializer) {
+        this.mcpClientPool = mcpClientPool;
+        this.toolCatalog = toolCatalog;
+        this.startupInitializer = startupInitializer;
+    }
+
+    /**
+     * Register with the global CRaC context, which only keeps a weak reference to this resource.
+     */
+    public SnapshotLifecycle register() {
+        Core.getGlobalContext().register(this);
+        return this;
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        logger.info("Priming before checkpoint");
+        prime();
+        mcpClientPool.suspend();
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        logger.info("Restoring after checkpoint");
+        mcpClientPool.resume();
+        Thread.ofVirtual().start(startupInitializer::warmUpBedrock);
+    }
+
+    private void prime() {
+        try {
+            toolCatalog.getToolConfiguration();
+            mcpClientPool.callTool(new CallToolRequest("calculator", Map.of("operation", "add", "a", 1, "b", 1)));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to prime the MCP client pool", e);
+        }
+        startupInitializer.warmUpBedrock();
+    }
+}
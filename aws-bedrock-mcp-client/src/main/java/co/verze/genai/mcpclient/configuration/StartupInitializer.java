@@ -0,0 +1,129 @@
+package co.verze.genai.mcpclient.configuration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import co.verze.genai.mcpclient.service.McpClientPool;
+import co.verze.genai.mcpclient.service.ToolCatalog;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseRequest;
+
+/**
+ * Warms up the MCP servers and the Bedrock connections concurrently, off the context startup path.
+ * <p>
+ * The MCP client pool launches its servers in the background, once they are up the tool catalog is fetched.
+ * At the same time both Bedrock clients open {@code warmConnections} connections each, by sending that many
+ * requests at once. Requests never wait for the whole startup, a call that needs an MCP server waits for the
+ * pool, a Bedrock call opens its connection if the warm-up hasn't yet.
+ * <p>
+ * As a health indicator it reports OUT_OF_SERVICE until the warm-up has finished, add it to the readiness
+ * group so traffic is only routed once the tools are available while liveness stays independent of it.
+ */
+public class StartupInitializer implements HealthIndicator, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StartupInitializer.class);
+    private final McpClientPool mcpClientPool;
+    private final ToolCatalog toolCatalog;
+    private final BedrockRuntimeClient bedrockClient;
+    private final BedrockRuntimeAsyncClient bedrockAsyncClient;
+    private final int warmConnections;
+    private final ConverseRequest warmUpRequest;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile CompletableFuture<Void> tools = CompletableFuture.completedFuture(null);
+    private volatile CompletableFuture<Void> bedrock = CompletableFuture.completedFuture(null);
+
+    public StartupInitializer(McpClientPool mcpClientPool, ToolCatalog toolCatalog,
+                              BedrockRuntimeClient bedrockClient, BedrockRuntimeAsyncClient bedrockAsyncClient,
+                              int warmConnections, String warmUpModelId) {
+        this.mcpClientPool = mcpClientPool;
+        this.toolCatalog = toolCatalog;
+        this.bedrockClient = bedrockClient;
+        this.bedrockAsyncClient = bedrockAsyncClient;
+        this.warmConnections = warmConnections;
+        // Bedrock rejects a request without messages, so warming up exercises the whole HTTP stack for free.
+        // Every model is served from the same endpoint, so the connections are shared by all of them
+        this.warmUpRequest = ConverseRequest.builder()
+                .modelId(warmUpModelId)
+                .messages(List.of())
+                .build();
+    }
+
+    /**
+     * Start the warm-up and return without waiting for it.
+     */
+    public StartupInitializer start() {
+        long start = System.nanoTime();
+        tools = mcpClientPool.ready()
+                .thenRunAsync(toolCatalog::getToolConfiguration, executor)
+                .whenComplete((result, e) -> logCompletion("MCP tools", start, e));
+        bedrock = warmUpBedrockConnections()
+                .whenComplete((result, e) -> logCompletion("Bedrock clients", start, e));
+        return this;
+    }
+
+    /**
+     * Open the Bedrock connections again, for example after a snapshot has been restored.
+     */
+    public void warmUpBedrock() {
+        warmUpBedrockConnections().join();
+    }
+
+    // Concurrent requests can't share a connection, so each one leaves a connection in the pool
+    private CompletableFuture<Void> warmUpBedrockConnections() {
+        CompletableFuture<?>[] warmUps = new CompletableFuture<?>[warmConnections * 2];
+        for (int i = 0; i < warmConnections; i++) {
+            warmUps[i * 2] = CompletableFuture.runAsync(this::warmUpBedrockClient, executor);
+            warmUps[i * 2 + 1] = CompletableFuture.runAsync(this::warmUpBedrockAsyncClient, executor);
+        }
+        return CompletableFuture.allOf(warmUps);
+    }
+
+    @Override
+    public Health health() {
+        boolean toolsReady = tools.isDone() && mcpClientPool.ready().isDone() && mcpClientPool.isAvailable();
+        boolean bedrockReady = bedrock.isDone();
+        Health.Builder builder = toolsReady && bedrockReady ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("mcp", toolsReady ? "ready" : "starting")
+                .withDetail("bedrock", bedrockReady ? "ready" : "starting")
+                .build();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void warmUpBedrockClient() {
+        try {
+            bedrockClient.converse(warmUpRequest);
+        } catch (SdkException e) {
+            logger.debug("Warmed up Bedrock client: {}", e.getMessage());
+        }
+    }
+
+    private void warmUpBedrockAsyncClient() {
+        try {
+            bedrockAsyncClient.converse(warmUpRequest).join();
+        } catch (RuntimeException e) {
+            logger.debug("Warmed up Bedrock async client: {}", e.getMessage());
+        }
+    }
+
+    private static void logCompletion(String component, long start, Throwable e) {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if (e != null) {
+            logger.warn("{} failed to warm up after {} ms", component, millis, e);
+        } else {
+            logger.info("{} ready after {} ms", component, millis);
+        }
+    }
+}
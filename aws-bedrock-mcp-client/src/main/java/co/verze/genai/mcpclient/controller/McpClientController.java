@@ -3,41 +3,78 @@ package co.verze.genai.mcpclient.controller;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import co.verze.genai.mcpclient.utils.DocumentUtils;
+import java.util.concurrent.CompletableFuture;
+
+import co.verze.genai.mcpclient.service.AgentLoop;
+import co.verze.genai.mcpclient.service.BatchQueryRunner;
+import co.verze.genai.mcpclient.service.BatchQueryRunner.BatchQuery;
+import co.verze.genai.mcpclient.service.ConversationSessionStore;
+import co.verze.genai.mcpclient.service.ConversationSessionStore.SessionHistory;
+import co.verze.genai.mcpclient.service.McpClientPool;
+import co.verze.genai.mcpclient.service.ModelRouter;
+import co.verze.genai.mcpclient.service.QueryBudget;
+import co.verze.genai.mcpclient.service.StreamingAgent;
+import co.verze.genai.mcpclient.service.ToolCatalog;
+import co.verze.genai.mcpclient.service.ToolClient;
+import co.verze.genai.mcpclient.service.ToolResultCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
-import io.modelcontextprotocol.client.McpSyncClient;
 import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
 import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
 import io.swagger.v3.oas.annotations.Operation;
-import software.amazon.awssdk.core.document.Document;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 import software.amazon.awssdk.services.bedrockruntime.model.*;
 
 @RestController
 public class  McpClientController {
     private static final Logger logger = LoggerFactory.getLogger(McpClientController.class);
-    private static final String MODEL_ID = "us.anthropic.claude-sonnet-4-20250514-v1:0";
-    private static final int MAX_TURNS = 10;
-    private final BedrockRuntimeClient bedrockClient;
-    private final McpSyncClient stdioMcpServer;
+    private static final String SESSION_ID_HEADER = "X-Session-Id";
+    private static final String MODEL_HEADER = "X-Model";
+    private final McpClientPool mcpClientPool;
+    private final ToolClient toolClient;
+    private final ToolResultCache toolResultCache;
+    private final ToolCatalog toolCatalog;
+    private final AgentLoop agentLoop;
+    private final StreamingAgent streamingAgent;
+    private final ConversationSessionStore sessionStore;
+    private final QueryBudget queryBudget;
+    private final ModelRouter modelRouter;
+    private final BatchQueryRunner batchQueryRunner;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public McpClientController(BedrockRuntimeClient bedrockClient, McpSyncClient stdioMcpServer) {
-        this.bedrockClient = bedrockClient;
-        this.stdioMcpServer = stdioMcpServer;
+    public McpClientController(McpClientPool mcpClientPool, ToolResultCache toolResultCache, ToolCatalog toolCatalog,
+                               AgentLoop agentLoop, StreamingAgent streamingAgent,
+                               ConversationSessionStore sessionStore, QueryBudget queryBudget,
+                               ModelRouter modelRouter, BatchQueryRunner batchQueryRunner, ObjectMapper objectMapper) {
+        this.mcpClientPool = mcpClientPool;
+        this.toolClient = toolResultCache;
+        this.toolResultCache = toolResultCache;
+        this.toolCatalog = toolCatalog;
+        this.agentLoop = agentLoop;
+        this.streamingAgent = streamingAgent;
+        this.sessionStore = sessionStore;
+        this.queryBudget = queryBudget;
+        this.modelRouter = modelRouter;
+        this.batchQueryRunner = batchQueryRunner;
+        this.objectMapper = objectMapper;
     }
 
 
@@ -52,10 +89,34 @@ public class  McpClientController {
     @Operation(summary = "List tools from server", description = "Returns a list of available tools from the server")
     public ResponseEntity<ListToolsResult> listTools() {
         logger.info("Listing tools from server");
-        ListToolsResult result = stdioMcpServer.listTools();
+        ListToolsResult result = toolCatalog.getTools();
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/tools/catalog")
+    @Operation(summary = "Tool catalog stats", description = "Returns the tool catalog version and cache hit/miss counters")
+    public ResponseEntity<ToolCatalog.Stats> toolCatalogStats() {
+        return ResponseEntity.ok(toolCatalog.getStats());
+    }
+
+    @GetMapping("/mcp/pool")
+    @Operation(summary = "MCP client pool stats", description = "Returns the health and load of every pooled MCP server client")
+    public ResponseEntity<List<McpClientPool.ClientStats>> mcpPoolStats() {
+        return ResponseEntity.ok(mcpClientPool.getStats());
+    }
+
+    @GetMapping("/tools/cache")
+    @Operation(summary = "Tool result cache stats", description = "Returns the tool result cache size, hit rate and evictions")
+    public ResponseEntity<ToolResultCache.Stats> toolCacheStats() {
+        return ResponseEntity.ok(toolResultCache.getStats());
+    }
+
+    @GetMapping("/models")
+    @Operation(summary = "Model routing stats", description = "Returns the tier, latency and error rate averages of every routed model")
+    public ResponseEntity<List<ModelRouter.ModelStats.Snapshot>> modelStats() {
+        return ResponseEntity.ok(modelRouter.getStats());
+    }
+
     @PostMapping("/calculate")
     @Operation(summary = "Calculate endpoint", description = "Performs calculations using the calculate tool")
     public ResponseEntity<CallToolResult> calculate(
@@ -76,7 +137,7 @@ public class  McpClientController {
         logger.info("Calculate requested: " + a + ", " + operation + ", " + b);
 
         // Call the tool and get the result
-        CallToolResult result = stdioMcpServer.callTool(toolRequest);
+        CallToolResult result = toolClient.callTool(toolRequest);
         
         return ResponseEntity.ok(result);
     }
@@ -98,7 +159,7 @@ public class  McpClientController {
         );
         
         // Call the tool and get the result
-        CallToolResult result = stdioMcpServer.callTool(toolRequest);
+        CallToolResult result = toolClient.callTool(toolRequest);
 
         return ResponseEntity.ok(result);
     }
@@ -118,163 +179,138 @@ public class  McpClientController {
         );
 
         // Call the tool and get the result
-        CallToolResult result = stdioMcpServer.callTool(toolRequest);
+        CallToolResult result = toolClient.callTool(toolRequest);
 
         return ResponseEntity.ok(result);
     }
 
     @PostMapping("/query")
-    @Operation(summary = "Query endpoint", description = "Queries bedrock model and uses tools to answer query")
-    public ResponseEntity<String> query(String query) {
-        logger.info("Processing query: {}", query);
-
-        // Get available tools from MCP server
-        ListToolsResult availableTools = stdioMcpServer.listTools();
-        logger.info("Available tools: {}", availableTools.tools().size());
-
-        ToolConfiguration toolConfiguration = convertToToolConfiguration(availableTools);
+    @Operation(summary = "Query endpoint",
+            description = "Queries bedrock model and uses tools to answer query, pass the returned X-Session-Id to ask follow-up questions. "
+                    + "The optional limits can only lower the configured query budget, the X-Model header picks a model tier or model")
+    public CompletableFuture<ResponseEntity<String>> query(String query,
+                                                           @RequestParam(required = false) String sessionId,
+                                                           @RequestHeader(value = MODEL_HEADER, required = false) String model,
+                                                           @RequestParam(required = false) Integer maxTurns,
+                                                           @RequestParam(required = false) Long maxInputTokens,
+                                                           @RequestParam(required = false) Long maxOutputTokens,
+                                                           @RequestParam(required = false) Integer maxSeconds) {
+        logger.info("Processing query: {} in session {}", query, sessionId);
+        ModelRouter.Route route = route(query, model);
+
+        // Get available tools from the catalog, only reaches out to the MCP server when the tool list changed
+        ToolConfiguration toolConfiguration = toolCatalog.getToolConfiguration();
         logger.debug("Tool Configuration: {}", toolConfiguration);
 
-
-        List<Message> bedrockMessages = new ArrayList<>();
+        SessionHistory session = sessionStore.open(sessionId);
+        List<Message> bedrockMessages = session.messages();
         bedrockMessages.add(Message.builder()
                 .role(ConversationRole.USER)
                 .content(ContentBlock.fromText(query))
                 .build());
 
-        return query(bedrockMessages, toolConfiguration);
+        QueryBudget budget = budget(maxTurns, maxInputTokens, maxOutputTokens, maxSeconds);
+        return agentLoop.run(bedrockMessages, toolConfiguration, budget, route)
+                .thenApply(responseText -> {
+                    sessionStore.save(session.sessionId(), bedrockMessages);
+                    return ResponseEntity.ok()
+                            .header("Content-Type", "text/plain; charset=utf-8")
+                            .header("X-Content-Type-Options", "nosniff")
+                            .header(SESSION_ID_HEADER, session.sessionId())
+                            .body(responseText);
+                });
     }
 
+    @PostMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Streaming query endpoint",
+            description = "Queries bedrock model and uses tools to answer query, streaming text deltas, tool calls and stop reasons as server-sent events. "
+                    + "The optional limits can only lower the configured query budget, the X-Model header picks a model tier or model")
+    public ResponseEntity<SseEmitter> queryStream(String query,
+                                                  @RequestParam(required = false) String sessionId,
+                                                  @RequestHeader(value = MODEL_HEADER, required = false) String model,
+                                                  @RequestParam(required = false) Integer maxTurns,
+                                                  @RequestParam(required = false) Long maxInputTokens,
+                                                  @RequestParam(required = false) Long maxOutputTokens,
+                                                  @RequestParam(required = false) Integer maxSeconds) {
+        logger.info("Processing streaming query: {} in session {}", query, sessionId);
+        ModelRouter.Route route = route(query, model);
+
+        SessionHistory session = sessionStore.open(sessionId);
+        List<Message> bedrockMessages = session.messages();
+        bedrockMessages.add(Message.builder()
+                .role(ConversationRole.USER)
+                .content(ContentBlock.fromText(query))
+                .build());
 
-    private ResponseEntity<String> query(List<Message> messages, ToolConfiguration toolConfiguration) {
-        logger.info("Making initial bedrock request with messages '{}' and tool config '{}'", messages, toolConfiguration);
-        ConverseResponse response = makeBedrockRequest(messages, toolConfiguration);
-        logger.info("Initial bedrock response: {}", response);
-
-        logger.info("Processing response with stop reason: {}", response.stopReason());
-        ConverseResponse currentResponse = response;
-        List<String> finalText = new ArrayList<>();
-        int turnCount = 0;
-
-        while (turnCount < MAX_TURNS) {
-            switch (currentResponse.stopReason()) {
-                case TOOL_USE -> {
-                    finalText.add("received toolUse request");
-
-                    for (ContentBlock content : currentResponse.output().message().content()) {
-                        if (content.text() != null) {
-                            logger.info("Received toolUse request: {}", content.text());
-                            finalText.add("[Thinking: " + content.text() + "]");
-                            messages.add(Message.builder().role(ConversationRole.ASSISTANT).content(content).build());
-                        } else if (content.toolUse() != null) {
-                            logger.info("Received toolUse response: {}", content.toolUse());
-                            messages.add(Message.builder().role(ConversationRole.ASSISTANT)
-                                    .content(ContentBlock.builder().toolUse(content.toolUse()).build()).build());
-                            ToolResultBlock toolResultBlock = handleToolUseBlock(content.toolUse());
-                            messages.add(Message.builder().role(ConversationRole.USER)
-                                    .content(ContentBlock.builder().toolResult(toolResultBlock).build()).build());
-                            finalText.add(toolResultBlock.toString());
-
-                            logger.info("Sending toolUse response to bedrock: {}", messages);
-                            currentResponse = makeBedrockRequest(messages, toolConfiguration);
-                            logger.info("Received response after toolUse: {}", currentResponse);
-                        }
-                    }
-                }
-                case MAX_TOKENS -> {
-                    logger.info("Max tokens reached, ending conversation.");
-                    finalText.add("[Max tokens reached, ending conversation.]");
-                    turnCount = MAX_TURNS;
-                }
-                case STOP_SEQUENCE -> {
-                    logger.info("Stop sequence reached, ending conversation.");
-                    finalText.add("[Stop sequence reached, ending conversation.]");
-                    turnCount = MAX_TURNS;
-                }
-                case CONTENT_FILTERED -> {
-                    logger.info("Content filtered, ending conversation.");
-                    finalText.add("[Content filtered, ending conversation.]");
-                    turnCount = MAX_TURNS;
-                }
-                case END_TURN -> {
-                    logger.info("End turn reached, ending conversation.");
-                    if (!currentResponse.output().message().content().isEmpty()) {
-                        ContentBlock firstContent = currentResponse.output().message().content().get(0);
-                        if (firstContent.text() != null) {
-                            finalText.add(firstContent.text());
-                        }
-                    }
-                    turnCount = MAX_TURNS;
-                }
-            }
-            turnCount++;
-        }
-
-        // At the end, replace the simple ResponseEntity.ok with:
-        String responseText = String.join("\n\n", finalText);
+        QueryBudget budget = budget(maxTurns, maxInputTokens, maxOutputTokens, maxSeconds);
+        SseEmitter emitter = streamingAgent.stream(bedrockMessages, toolCatalog.getToolConfiguration(), budget,
+                route, messages -> sessionStore.save(session.sessionId(), messages));
         return ResponseEntity.ok()
-                .header("Content-Type", "text/plain; charset=utf-8")
-                .header("X-Content-Type-Options", "nosniff")
-                .body(responseText);
+                .header(SESSION_ID_HEADER, session.sessionId())
+                .body(emitter);
     }
 
-    private ToolResultBlock  handleToolUseBlock(ToolUseBlock toolUseRequest) {
-        String toolUseId = toolUseRequest.toolUseId();
-        String toolName = toolUseRequest.name();
-        Map<String, Object> toolArgs = (Map<String, Object>)toolUseRequest.input().unwrap();
-
-        logger.info("Calling tool {} with args {} with use ID {}", toolName, toolArgs, toolUseId);
-        CallToolResult result = stdioMcpServer.callTool(new CallToolRequest(toolName, toolArgs));
-        logger.info("Tool result: {}", result);
-
-        return ToolResultBlock.builder()
-                .toolUseId(toolUseId)
-                .status(!result.isError() ? ToolResultStatus.SUCCESS : ToolResultStatus.ERROR)
-                .content(result.content().stream().map(
-                        content -> ToolResultContentBlock.builder().text(content.toString()).build()).toList())
-                .build();
+    @PostMapping(value = "/query/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Batch query endpoint",
+            description = "Runs a JSON array of {id, query} objects in parallel and returns a line of NDJSON per query as soon as it finishes. "
+                    + "The optional limits apply to every query, the X-Model header to all of them")
+    public ResponseEntity<ResponseBodyEmitter> queryBatch(@RequestBody List<BatchQuery> queries,
+                                                          @RequestHeader(value = MODEL_HEADER, required = false) String model,
+                                                          @RequestParam(required = false) Integer maxTurns,
+                                                          @RequestParam(required = false) Long maxInputTokens,
+                                                          @RequestParam(required = false) Long maxOutputTokens,
+                                                          @RequestParam(required = false) Integer maxSeconds) {
+        logger.info("Processing batch of {} queries", queries.size());
+        QueryBudget budget = budget(maxTurns, maxInputTokens, maxOutputTokens, maxSeconds);
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(batchQueryRunner.run(queries, budget, model));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping(value = "/query/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Batch query endpoint",
+            description = "Runs NDJSON lines of {id, query} objects in parallel and returns a line of NDJSON per query as soon as it finishes")
+    public ResponseEntity<ResponseBodyEmitter> queryBatchNdjson(@RequestBody String queries,
+                                                                @RequestHeader(value = MODEL_HEADER, required = false) String model,
+                                                                @RequestParam(required = false) Integer maxTurns,
+                                                                @RequestParam(required = false) Long maxInputTokens,
+                                                                @RequestParam(required = false) Long maxOutputTokens,
+                                                                @RequestParam(required = false) Integer maxSeconds) {
+        List<BatchQuery> batch = new ArrayList<>();
+        String[] lines = queries.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(objectMapper.readValue(lines[i], BatchQuery.class));
+            } catch (JsonProcessingException e) {
+                // Blank lines are skipped, so the line number isn't the position of the query in the batch
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid batch line " + (i + 1), e);
+            }
+        }
+        return queryBatch(batch, model, maxTurns, maxInputTokens, maxOutputTokens, maxSeconds);
     }
 
-    private ToolConfiguration convertToToolConfiguration(ListToolsResult listToolsResult) {
-        return ToolConfiguration.builder().tools(listToolsResult.tools().stream()
-                .map(tool -> {
-                    try {
-                        String inputSchemaJson = new ObjectMapper().writeValueAsString(tool.inputSchema());
-
-                        // Parse to JsonNode first
-                        ObjectMapper mapper = new ObjectMapper();
-                        JsonNode jsonNode = mapper.readTree(inputSchemaJson);
-
-                        // Convert JsonNode to Document using recursive conversion
-                        Document inputSchemaDocument = DocumentUtils.ConvertJsonNodeToDocument(jsonNode);
-
-                        return Tool.builder()
-                                .toolSpec(ToolSpecification.builder()
-                                        .name(tool.name())
-                                        .description(tool.description())
-                                        .inputSchema(ToolInputSchema.builder()
-                                                .json(inputSchemaDocument)
-                                                .build())
-                                        .build())
-                                .build();
-                    } catch (JsonProcessingException e) {
-                        logger.error("Failed to convert input schema to JSON: {}", e.getMessage());
-                        throw new RuntimeException(e);
-                    }
-                }).toList()
-        ).build();
+    private QueryBudget budget(Integer maxTurns, Long maxInputTokens, Long maxOutputTokens, Integer maxSeconds) {
+        try {
+            return queryBudget.narrow(maxTurns, maxInputTokens, maxOutputTokens, maxSeconds);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
-    private ConverseResponse makeBedrockRequest(List<Message> messages, ToolConfiguration toolConfiguration) {
-        ConverseRequest.Builder requestBuilder = ConverseRequest.builder()
-                .modelId(MODEL_ID)
-                .messages(messages)
-                .inferenceConfig(InferenceConfiguration.builder()
-                        .maxTokens(1000)
-                        .temperature(0.8F)
-                        .build())
-                .toolConfig(toolConfiguration);
-
-        return bedrockClient.converse(requestBuilder.build());
+    private ModelRouter.Route route(String query, String model) {
+        try {
+            return modelRouter.route(query, model);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 }
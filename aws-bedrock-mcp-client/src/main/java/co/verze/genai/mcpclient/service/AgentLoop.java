@@ -0,0 +1,35 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+
+/**
+ * The multi-turn conversation between the model and the MCP tools behind /query.
+ * The implementation is selected with the {@code agent.execution-mode} property.
+ */
+public interface AgentLoop {
+
+    /**
+     * Converse with the model, running tools for it, until it stops or the budget is spent.
+     * A blocking loop stops when its thread is interrupted, a non-blocking one when the returned future is cancelled,
+     * before its next model call.
+     *
+     * @param messages          The conversation so far, every turn including the final answer is appended to it
+     * @param toolConfiguration The tools available to the model
+     * @param budget            The turns, tokens and time the query may spend
+     * @param route             Picks the model of every turn
+     * @return The response text
+     */
+    CompletableFuture<String> run(List<Message> messages, ToolConfiguration toolConfiguration, QueryBudget budget,
+                                  ModelRouter.Route route);
+
+    enum ExecutionMode {
+        /** Blocks the request thread on Bedrock and the MCP clients */
+        SYNC,
+        /** Never blocks, the request thread is released while Bedrock and the tools work */
+        ASYNC
+    }
+}
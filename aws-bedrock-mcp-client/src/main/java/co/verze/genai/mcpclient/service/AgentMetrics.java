@@ -0,0 +1,135 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.services.bedrockruntime.model.StopReason;
+import software.amazon.awssdk.services.bedrockruntime.model.TokenUsage;
+
+/**
+ * Micrometer instrumentation of the agent loop, published on /actuator/prometheus.
+ * <ul>
+ *     <li>{@code bedrock.calls} - client side latency of every Converse and ConverseStream call</li>
+ *     <li>{@code bedrock.latency} - the latency Bedrock reports for the same calls</li>
+ *     <li>{@code bedrock.tokens} - input, output, cache read and cache write tokens per model</li>
+ *     <li>{@code agent.turns} - a model response and the tool calls it asked for, by stop reason</li>
+ *     <li>{@code agent.queries} - a whole query, with {@code agent.query.turns} turns per query
+ *     and {@code agent.query.stops} counting why queries ended</li>
+ *     <li>{@code mcp.client.tool.calls} - tool call latency on the client side of the MCP transport</li>
+ * </ul>
+ */
+public class AgentMetrics {
+    public static final String TURN_LIMIT = "turn_limit";
+    public static final String ERROR = "error";
+    public static final String CANCELLED = "cancelled";
+    private final MeterRegistry registry;
+
+    public AgentMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Record a completed Converse or ConverseStream call.
+     *
+     * @param sample    Started before the request was sent
+     * @param operation converse or converse_stream
+     * @param modelId   The model called
+     * @param usage     The token usage of the response, may be null
+     * @param latencyMs The latency reported by Bedrock, may be null
+     */
+    public void recordBedrockCall(Timer.Sample sample, String operation, String modelId, TokenUsage usage, Long latencyMs) {
+        sample.stop(Timer.builder("bedrock.calls")
+                .description("Bedrock call latency measured by the client")
+                .tag("operation", operation)
+                .tag("model", modelId)
+                .publishPercentileHistogram()
+                .register(registry));
+        if (latencyMs != null) {
+            Timer.builder("bedrock.latency")
+                    .description("Bedrock call latency reported by Bedrock")
+                    .tag("operation", operation)
+                    .tag("model", modelId)
+                    .register(registry)
+                    .record(latencyMs, TimeUnit.MILLISECONDS);
+        }
+        if (usage != null) {
+            countTokens(modelId, "input", usage.inputTokens());
+            countTokens(modelId, "output", usage.outputTokens());
+            countTokens(modelId, "cache_read", usage.cacheReadInputTokens());
+            countTokens(modelId, "cache_write", usage.cacheWriteInputTokens());
+        }
+    }
+
+    /**
+     * Record a turn, from sending the request to having the results of every tool it asked for.
+     */
+    public void recordTurn(Timer.Sample sample, String mode, StopReason stopReason) {
+        sample.stop(Timer.builder("agent.turns")
+                .description("Agent turn latency, model response plus tool calls")
+                .tag("mode", mode)
+                .tag("stop_reason", String.valueOf(stopReason))
+                .register(registry));
+    }
+
+    /**
+     * Record a whole query.
+     *
+     * @param sample Started when the query was received
+     * @param mode   sync, async or stream
+     * @param turns  The number of model responses
+     * @param stop   The stop reason that ended the query, {@link #TURN_LIMIT} or {@link #ERROR}
+     */
+    public void recordQuery(Timer.Sample sample, String mode, int turns, String stop) {
+        sample.stop(Timer.builder("agent.queries")
+                .description("Whole query latency")
+                .tag("mode", mode)
+                .tag("outcome", ERROR.equals(stop) ? "error" : "success")
+                .publishPercentileHistogram()
+                .register(registry));
+        DistributionSummary.builder("agent.query.turns")
+                .description("Turns needed to answer a query")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(turns);
+        Counter.builder("agent.query.stops")
+                .description("Why queries ended")
+                .tag("mode", mode)
+                .tag("stop_reason", stop)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Record a tool call made through the MCP client.
+     *
+     * @param outcome success, error for an error result, timeout or exception
+     */
+    public void recordToolCall(String toolName, String outcome, long nanos) {
+        Timer.builder("mcp.client.tool.calls")
+                .description("Tool call latency on the client side of the MCP transport")
+                .tag("tool", toolName)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void countTokens(String modelId, String type, Integer tokens) {
+        if (tokens != null && tokens > 0) {
+            Counter.builder("bedrock.tokens")
+                    .description("Tokens processed by Bedrock")
+                    .tag("model", modelId)
+                    .tag("type", type)
+                    .register(registry)
+                    .increment(tokens);
+        }
+    }
+}
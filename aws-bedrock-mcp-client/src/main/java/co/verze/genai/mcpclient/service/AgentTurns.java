@@ -0,0 +1,120 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+/**
+ * Turn handling shared by the agent loop implementations.
+ */
+final class AgentTurns {
+    private static final Logger logger = LoggerFactory.getLogger(AgentTurns.class);
+
+    private AgentTurns() {
+    }
+
+    /**
+     * Collect the toolUse blocks of an assistant message, recording any thinking text on the way.
+     *
+     * @param assistantMessage The assistant message that ended with a TOOL_USE stop reason
+     * @param finalText        The response text being built up
+     * @return The toolUse blocks in message order
+     */
+    static List<ToolUseBlock> collectToolUses(Message assistantMessage, List<String> finalText) {
+        finalText.add("received toolUse request");
+
+        List<ToolUseBlock> toolUseBlocks = new ArrayList<>();
+        for (ContentBlock content : assistantMessage.content()) {
+            if (content.text() != null) {
+                logger.info("Received toolUse request: {}", content.text());
+                finalText.add("[Thinking: " + content.text() + "]");
+            } else if (content.toolUse() != null) {
+                logger.info("Received toolUse response: {}", content.toolUse());
+                toolUseBlocks.add(content.toolUse());
+            }
+        }
+        return toolUseBlocks;
+    }
+
+    /**
+     * Answer all the tool calls of a turn in a single user message.
+     */
+    static Message toolResultMessage(List<ToolResultBlock> toolResultBlocks) {
+        return Message.builder().role(ConversationRole.USER)
+                .content(toolResultBlocks.stream()
+                        .map(toolResultBlock -> ContentBlock.builder().toolResult(toolResultBlock).build())
+                        .toList())
+                .build();
+    }
+
+    /**
+     * An assistant message without tool calls, the end of an exchange.
+     */
+    static boolean isFinalAnswer(Message message) {
+        return message.role() == ConversationRole.ASSISTANT
+                && message.content().stream().allMatch(content -> content.toolUse() == null);
+    }
+
+    /**
+     * A user message without tool results, the start of an exchange.
+     */
+    static boolean isUserQuery(Message message) {
+        return message.role() == ConversationRole.USER
+                && message.content().stream().map(ContentBlock::toolResult).allMatch(toolResult -> toolResult == null);
+    }
+
+    /**
+     * Record that the query budget can't afford another turn.
+     *
+     * @param reason One of the {@link QueryBudget} stop reasons
+     */
+    static void recordBudgetStop(String reason, List<String> finalText) {
+        logger.info("Query budget exhausted by {}, ending conversation.", reason);
+        finalText.add("[Query budget exhausted (" + reason + "), ending conversation.]");
+    }
+
+    /**
+     * Record the outcome of a response that ends the conversation.
+     *
+     * @param response  A response with any stop reason but TOOL_USE
+     * @param finalText The response text being built up
+     */
+    static void recordStop(ConverseResponse response, List<String> finalText) {
+        switch (response.stopReason()) {
+            case MAX_TOKENS -> {
+                logger.info("Max tokens reached, ending conversation.");
+                finalText.add("[Max tokens reached, ending conversation.]");
+            }
+            case STOP_SEQUENCE -> {
+                logger.info("Stop sequence reached, ending conversation.");
+                finalText.add("[Stop sequence reached, ending conversation.]");
+            }
+            case CONTENT_FILTERED -> {
+                logger.info("Content filtered, ending conversation.");
+                finalText.add("[Content filtered, ending conversation.]");
+            }
+            case END_TURN -> {
+                logger.info("End turn reached, ending conversation.");
+                if (!response.output().message().content().isEmpty()) {
+                    ContentBlock firstContent = response.output().message().content().get(0);
+                    if (firstContent.text() != null) {
+                        finalText.add(firstContent.text());
+                    }
+                }
+            }
+            default -> {
+                logger.info("Stop reason {} reached, ending conversation.", response.stopReason());
+                finalText.add("[" + response.stopReason() + " reached, ending conversation.]");
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.StopReason;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+/**
+ * Agent loop built entirely on non-blocking calls, the Bedrock async client and the MCP async clients.
+ * Each turn is chained onto the completion of the previous one, so an in-flight conversation holds no thread.
+ */
+public class AsyncAgentLoop implements AgentLoop {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncAgentLoop.class);
+    private static final String MODE = "async";
+    private final BedrockRuntimeAsyncClient bedrockAsyncClient;
+    private final ConverseRequestFactory requestFactory;
+    private final ToolTurnExecutor toolTurnExecutor;
+    private final AgentMetrics agentMetrics;
+
+    public AsyncAgentLoop(BedrockRuntimeAsyncClient bedrockAsyncClient, ConverseRequestFactory requestFactory,
+                          ToolTurnExecutor toolTurnExecutor, AgentMetrics agentMetrics) {
+        this.bedrockAsyncClient = bedrockAsyncClient;
+        this.requestFactory = requestFactory;
+        this.toolTurnExecutor = toolTurnExecutor;
+        this.agentMetrics = agentMetrics;
+    }
+
+    @Override
+    public CompletableFuture<String> run(List<Message> messages, ToolConfiguration toolConfiguration,
+                                         QueryBudget budget, ModelRouter.Route route) {
+        logger.debug("Making initial async bedrock request with messages '{}'", messages);
+        // Turns are strictly sequential, so plain lists are safe to hand from one stage to the next
+        List<String> finalText = new ArrayList<>();
+        QueryProgress progress = new QueryProgress(agentMetrics.start(), budget.start(), route);
+        Timer.Sample turnSample = agentMetrics.start();
+        makeBedrockRequest(messages, toolConfiguration, progress)
+                .thenCompose(response -> nextTurn(messages, toolConfiguration, response, turnSample, 0, finalText, progress))
+                .whenComplete((done, e) -> {
+                    agentMetrics.recordQuery(progress.sample, MODE, progress.turns,
+                            e == null ? progress.stop : AgentMetrics.ERROR);
+                    if (e != null) {
+                        progress.answer.completeExceptionally(e);
+                    } else {
+                        progress.answer.complete(String.join("\n\n", finalText));
+                    }
+                });
+        return progress.answer;
+    }
+
+    private CompletableFuture<Void> nextTurn(List<Message> messages, ToolConfiguration toolConfiguration,
+                                             ConverseResponse response, Timer.Sample turnSample, int turnCount,
+                                             List<String> finalText, QueryProgress progress) {
+        progress.turns++;
+        logger.info("Processing response with stop reason: {}", response.stopReason());
+        if (response.stopReason() != StopReason.TOOL_USE) {
+            messages.add(response.output().message());
+            AgentTurns.recordStop(response, finalText);
+            agentMetrics.recordTurn(turnSample, MODE, response.stopReason());
+            progress.stop = String.valueOf(response.stopReason());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Message assistantMessage = response.output().message();
+        messages.add(assistantMessage);
+        List<ToolUseBlock> toolUseBlocks = AgentTurns.collectToolUses(assistantMessage, finalText);
+
+        return toolTurnExecutor.executeAsync(toolUseBlocks)
+                .thenCompose(toolResultBlocks -> {
+                    messages.add(AgentTurns.toolResultMessage(toolResultBlocks));
+                    toolResultBlocks.forEach(toolResultBlock -> finalText.add(toolResultBlock.toString()));
+                    agentMetrics.recordTurn(turnSample, MODE, response.stopReason());
+                    progress.route.afterToolTurn(toolUseBlocks, toolResultBlocks);
+                    String exhausted = progress.budget.exhausted();
+                    if (exhausted != null) {
+                        AgentTurns.recordBudgetStop(exhausted, finalText);
+                        progress.stop = exhausted;
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // Every model response counts, so the last turn allowed is never sent only to be thrown away
+                    if (turnCount + 1 >= progress.budget.budget().maxTurns()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // Nobody waits for the answer any more
+                    if (progress.answer.isCancelled()) {
+                        progress.stop = AgentMetrics.CANCELLED;
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    Timer.Sample nextTurnSample = agentMetrics.start();
+                    return makeBedrockRequest(messages, toolConfiguration, progress)
+                            .thenCompose(next -> nextTurn(messages, toolConfiguration, next, nextTurnSample,
+                                    turnCount + 1, finalText, progress));
+                });
+    }
+
+    private CompletableFuture<ConverseResponse> makeBedrockRequest(List<Message> messages,
+                                                                   ToolConfiguration toolConfiguration,
+                                                                   QueryProgress progress) {
+        String modelId = progress.route.model();
+        Timer.Sample sample = agentMetrics.start();
+        long start = System.nanoTime();
+        return bedrockAsyncClient.converse(
+                        requestFactory.converseRequest(modelId, messages, toolConfiguration, progress.budget))
+                .whenComplete((response, e) -> progress.route.recordCall(modelId, System.nanoTime() - start, e))
+                .thenApply(response -> {
+                    progress.budget.record(response.usage());
+                    agentMetrics.recordBedrockCall(sample, "converse", modelId, response.usage(),
+                            response.metrics() != null ? response.metrics().latencyMs() : null);
+                    return response;
+                });
+    }
+
+    /**
+     * What the finished query is recorded with, only ever touched by one stage at a time.
+     */
+    private static class QueryProgress {
+        private final Timer.Sample sample;
+        private final QueryBudget.Tracker budget;
+        private final ModelRouter.Route route;
+        // Returned to the caller, cancelling it stops the query before its next model call
+        private final CompletableFuture<String> answer = new CompletableFuture<>();
+        private int turns;
+        private String stop = AgentMetrics.TURN_LIMIT;
+
+        QueryProgress(Timer.Sample sample, QueryBudget.Tracker budget, ModelRouter.Route route) {
+            this.sample = sample;
+            this.budget = budget;
+            this.route = route;
+        }
+    }
+}
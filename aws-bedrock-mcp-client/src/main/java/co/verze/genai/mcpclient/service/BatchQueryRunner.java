@@ -0,0 +1,261 @@
+package co.verze.genai.mcpclient.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+
+/**
+ * Runs a batch of independent queries on the agent loop, at most {@code maxParallelism} at a time, and writes
+ * every result as a line of NDJSON as soon as its query finishes, so results arrive in completion order.
+ * <p>
+ * The tool configuration is fetched once for the whole batch, and identical tool calls of concurrent queries are
+ * made once by the {@link ToolResultCache}. Batch queries have no session, each one starts a new conversation.
+ * <p>
+ * When the caller goes away or the batch times out no further query is started and the running ones are cancelled,
+ * they stop before their next model call.
+ */
+public class BatchQueryRunner implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BatchQueryRunner.class);
+    private final AgentLoop agentLoop;
+    private final ToolCatalog toolCatalog;
+    private final ModelRouter modelRouter;
+    private final ObjectMapper objectMapper;
+    private final int maxParallelism;
+    private final int maxQueries;
+    private final Duration batchTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * A query of a batch.
+     *
+     * @param id    Returned with the result to match it to the query, the position in the batch when missing
+     * @param query The query text
+     */
+    public record BatchQuery(String id, String query) {
+    }
+
+    /**
+     * The outcome of a query of a batch, either the response or the error.
+     */
+    public record BatchResult(String id, String status, String response, String error, long durationMs) {
+    }
+
+    public BatchQueryRunner(AgentLoop agentLoop, ToolCatalog toolCatalog, ModelRouter modelRouter,
+                            ObjectMapper objectMapper, int maxParallelism, int maxQueries, Duration batchTimeout) {
+        this.agentLoop = agentLoop;
+        this.toolCatalog = toolCatalog;
+        this.modelRouter = modelRouter;
+        this.objectMapper = objectMapper;
+        this.maxParallelism = maxParallelism;
+        this.maxQueries = maxQueries;
+        this.batchTimeout = batchTimeout;
+    }
+
+    /**
+     * Start running a batch in the background and return the emitter the results are written to.
+     *
+     * @param queries The queries of the batch
+     * @param budget  The budget of every single query
+     * @param model   A model tier or model id for all the queries, may be null to route each query on its own
+     * @return The emitter to hand back to Spring MVC
+     * @throws IllegalArgumentException If the batch is empty, too large or has a query without text, or the model is unknown
+     */
+    public ResponseBodyEmitter run(List<BatchQuery> queries, QueryBudget budget, String model) {
+        if (queries.isEmpty() || queries.size() > maxQueries) {
+            throw new IllegalArgumentException("A batch holds between 1 and " + maxQueries + " queries, got " + queries.size());
+        }
+        if (queries.stream().anyMatch(query -> query == null || query.query() == null || query.query().isBlank())) {
+            throw new IllegalArgumentException("Every query of a batch needs a query text");
+        }
+        // Routed up front, so an unknown model is rejected before anything runs
+        List<ModelRouter.Route> routes = queries.stream()
+                .map(query -> modelRouter.route(query.query(), model))
+                .toList();
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeout.toMillis());
+        Batch batch = new Batch(emitter);
+        emitter.onTimeout(batch::abandon);
+        emitter.onError(e -> batch.abandon());
+        // Also called once the batch has completed, there is nothing left to cancel then
+        emitter.onCompletion(batch::abandon);
+        executor.execute(() -> runAll(queries, routes, budget, batch));
+        return emitter;
+    }
+
+    private void runAll(List<BatchQuery> queries, List<ModelRouter.Route> routes, QueryBudget budget, Batch batch) {
+        long start = System.nanoTime();
+        ToolConfiguration toolConfiguration = toolCatalog.getToolConfiguration();
+        Semaphore permits = new Semaphore(maxParallelism);
+        List<CompletableFuture<Void>> results = new ArrayList<>(queries.size());
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                permits.acquire();
+                if (batch.abandoned) {
+                    logger.info("Batch abandoned by the caller, skipping the last {} of {} queries",
+                            queries.size() - i, queries.size());
+                    break;
+                }
+                BatchQuery query = queries.get(i);
+                String id = query.id() != null ? query.id() : String.valueOf(i);
+                RunningQuery running = batch.start(newConversation(query.query()), toolConfiguration, budget, routes.get(i));
+                long queryStart = System.nanoTime();
+                results.add(running.answer
+                        .handle((response, e) -> result(id, response, e, System.nanoTime() - queryStart))
+                        .thenAccept(result -> {
+                            permits.release();
+                            send(batch, result);
+                        }));
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+            if (!batch.abandoned) {
+                logger.info("Completed batch of {} queries in {} ms", queries.size(), (System.nanoTime() - start) / 1_000_000);
+                batch.emitter.complete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.abandon();
+            batch.emitter.completeWithError(e);
+        } catch (RuntimeException e) {
+            logger.error("Batch of {} queries failed", queries.size(), e);
+            batch.abandon();
+            batch.emitter.completeWithError(e);
+        }
+    }
+
+    private static List<Message> newConversation(String query) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(Message.builder()
+                .role(ConversationRole.USER)
+                .content(ContentBlock.fromText(query))
+                .build());
+        return messages;
+    }
+
+    private static BatchResult result(String id, String response, Throwable e, long nanos) {
+        if (e == null) {
+            return new BatchResult(id, "ok", response, null, nanos / 1_000_000);
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        logger.warn("Batch query {} failed", id, cause);
+        return new BatchResult(id, "error", null, cause.getMessage(), nanos / 1_000_000);
+    }
+
+    // Results complete concurrently, a line is written in one piece so lines never interleave
+    private void send(Batch batch, BatchResult result) {
+        if (batch.abandoned) {
+            return;
+        }
+        try {
+            String line = objectMapper.writeValueAsString(result) + "\n";
+            synchronized (batch.emitter) {
+                batch.emitter.send(line, MediaType.APPLICATION_NDJSON);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize batch result " + result.id(), e);
+        } catch (IOException | IllegalStateException e) {
+            // The caller went away, nobody reads the remaining results
+            logger.debug("Could not send batch result {}: {}", result.id(), e.getMessage());
+            batch.abandon();
+        }
+    }
+
+    /**
+     * The queries of one batch and whether anybody still reads their results.
+     */
+    private final class Batch {
+        private final ResponseBodyEmitter emitter;
+        private final List<RunningQuery> running = new CopyOnWriteArrayList<>();
+        private volatile boolean abandoned;
+
+        Batch(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // The sync agent loop blocks its caller, so every query gets a thread of its own
+        RunningQuery start(List<Message> messages, ToolConfiguration toolConfiguration, QueryBudget budget,
+                           ModelRouter.Route route) {
+            RunningQuery query = new RunningQuery();
+            running.add(query);
+            query.answer.whenComplete((response, e) -> running.remove(query));
+            query.thread = executor.submit(() -> {
+                if (query.answer.isDone()) {
+                    return;
+                }
+                try {
+                    query.loop = agentLoop.run(messages, toolConfiguration, budget, route);
+                    query.loop.whenComplete((response, e) -> {
+                        if (e != null) {
+                            query.answer.completeExceptionally(e);
+                        } else {
+                            query.answer.complete(response);
+                        }
+                    });
+                    if (query.answer.isCancelled()) {
+                        query.loop.cancel(false);
+                    }
+                } catch (RuntimeException e) {
+                    query.answer.completeExceptionally(e);
+                }
+            });
+            return query;
+        }
+
+        void abandon() {
+            if (abandoned) {
+                return;
+            }
+            abandoned = true;
+            if (!running.isEmpty()) {
+                logger.info("Cancelling {} running batch queries, the caller went away", running.size());
+            }
+            running.forEach(RunningQuery::cancel);
+        }
+    }
+
+    /**
+     * A query of a batch, run on a thread of its own by the sync agent loop or chained on futures by the async one.
+     */
+    private static final class RunningQuery {
+        private final CompletableFuture<String> answer = new CompletableFuture<>();
+        private volatile Future<?> thread;
+        private volatile CompletableFuture<String> loop;
+
+        void cancel() {
+            answer.cancel(false);
+            // Interrupts the sync agent loop and stops the async one before its next model call
+            Future<?> task = thread;
+            if (task != null) {
+                task.cancel(true);
+            }
+            CompletableFuture<String> currentLoop = loop;
+            if (currentLoop != null) {
+                currentLoop.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package co.verze.genai.mcpclient.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+/**
+ * Publishes the connection pool metrics the AWS SDK collects for every Bedrock call to Micrometer.
+ * <ul>
+ *     <li>{@code bedrock.http.acquire} - time spent waiting for a connection from the pool</li>
+ *     <li>{@code bedrock.http.leased}, {@code bedrock.http.available} and {@code bedrock.http.pending} - connections
+ *     in use, free slots of the pool and requests waiting for a connection, sampled on every call</li>
+ * </ul>
+ * The SDK doesn't report whether a call opened a new connection, a free slot can be an idle connection or room for a
+ * new one depending on the HTTP client. The URL connection client has no pool and reports none of these.
+ */
+public class BedrockHttpMetrics implements MetricPublisher {
+    private final MeterRegistry registry;
+    private final String clientName;
+
+    /**
+     * @param clientName Tag telling the blocking and the non-blocking Bedrock client apart
+     */
+    public BedrockHttpMetrics(MeterRegistry registry, String clientName) {
+        this.registry = registry;
+        this.clientName = clientName;
+    }
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        List<Duration> acquireDurations = metricCollection.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION);
+        if (!acquireDurations.isEmpty()) {
+            String httpClient = first(metricCollection.metricValues(HttpMetric.HTTP_CLIENT_NAME), "unknown");
+            acquireDurations.forEach(duration -> Timer.builder("bedrock.http.acquire")
+                    .description("Time waiting for a Bedrock connection from the pool")
+                    .tag("client", clientName)
+                    .tag("http_client", httpClient)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(duration));
+            record("bedrock.http.leased", "Bedrock connections in use", httpClient,
+                    metricCollection.metricValues(HttpMetric.LEASED_CONCURRENCY));
+            record("bedrock.http.available", "Free slots of the Bedrock connection pool", httpClient,
+                    metricCollection.metricValues(HttpMetric.AVAILABLE_CONCURRENCY));
+            record("bedrock.http.pending", "Bedrock calls waiting for a connection", httpClient,
+                    metricCollection.metricValues(HttpMetric.PENDING_CONCURRENCY_ACQUIRES));
+        }
+        // The HTTP metrics sit in the collection of each attempt, below the one of the whole call
+        metricCollection.children().forEach(this::publish);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void record(String name, String description, String httpClient, List<Integer> values) {
+        values.forEach(value -> DistributionSummary.builder(name)
+                .description(description)
+                .tag("client", clientName)
+                .tag("http_client", httpClient)
+                .register(registry)
+                .record(value));
+    }
+
+    private static <T> T first(List<T> values, T fallback) {
+        return values.isEmpty() ? fallback : values.get(0);
+    }
+}
@@ -0,0 +1,124 @@
+package co.verze.genai.mcpclient.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+
+/**
+ * Keeps the message history of conversations between requests, keyed by session id.
+ * <p>
+ * Memory is bounded three ways: sessions idle for longer than {@code idleTimeout} expire, at most
+ * {@code maxSessions} are kept with the least recently used evicted first, and a session keeps at
+ * most {@code maxMessages} messages with the oldest turns dropped first. Once over the cap it is cut back to half
+ * of it in one go rather than by a turn at a time, so the history keeps the same first messages, and the prompt
+ * cache keeps hitting, for many requests.
+ * Concurrent requests on the same session do not block each other, the last one to finish wins.
+ * <p>
+ * Session ids are random UUIDs issued by the store, an id the store doesn't know starts a new session with a new id,
+ * so callers can't choose or guess the id of a conversation.
+ */
+public class ConversationSessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSessionStore.class);
+    private final Duration idleTimeout;
+    private final int maxSessions;
+    private final int maxMessages;
+    private final LinkedHashMap<String, Session> sessions;
+
+    public ConversationSessionStore(Duration idleTimeout, int maxSessions, int maxMessages) {
+        this.idleTimeout = idleTimeout;
+        this.maxSessions = maxSessions;
+        this.maxMessages = maxMessages;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > ConversationSessionStore.this.maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Look up a session, creating a new one with a new id when the id is missing, unknown or expired.
+     *
+     * @param sessionId The session id sent by the caller, may be null
+     * @return The session id to use and a copy of its history
+     */
+    public SessionHistory open(String sessionId) {
+        synchronized (sessions) {
+            expireIdleSessions();
+            Session session = sessionId != null ? sessions.get(sessionId) : null;
+            if (session == null) {
+                String newSessionId = UUID.randomUUID().toString();
+                logger.info("Starting session {}", newSessionId);
+                sessions.put(newSessionId, new Session(List.of(), System.nanoTime()));
+                return new SessionHistory(newSessionId, new ArrayList<>());
+            }
+            sessions.put(sessionId, new Session(session.messages(), System.nanoTime()));
+            return new SessionHistory(sessionId, new ArrayList<>(session.messages()));
+        }
+    }
+
+    /**
+     * Store the history of a session after a completed request.
+     *
+     * @param sessionId The session id
+     * @param messages  The full conversation, including the last request
+     */
+    public void save(String sessionId, List<Message> messages) {
+        List<Message> history = List.copyOf(bound(messages));
+        synchronized (sessions) {
+            sessions.put(sessionId, new Session(history, System.nanoTime()));
+        }
+        logger.info("Saved session {} with {} messages", sessionId, history.size());
+    }
+
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private void expireIdleSessions() {
+        // Access ordered, so the idle sessions are at the head
+        long now = System.nanoTime();
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().lastAccess() > idleTimeout.toNanos()) {
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Make the history safe to continue and fit it into {@code maxMessages}.
+     * The history has to end with a final assistant answer and start with a plain user query,
+     * anything else would break the role alternation or the toolUse/toolResult pairing.
+     */
+    List<Message> bound(List<Message> messages) {
+        int end = messages.size();
+        while (end > 0 && !AgentTurns.isFinalAnswer(messages.get(end - 1))) {
+            end--;
+        }
+        // A sliding window would change the first message on every request and miss the cache every time
+        int start = end > maxMessages ? end - maxMessages / 2 : 0;
+        while (start < end && !AgentTurns.isUserQuery(messages.get(start))) {
+            start++;
+        }
+        return messages.subList(start, end);
+    }
+
+    private record Session(List<Message> messages, long lastAccess) {
+    }
+
+    /**
+     * A session id with a private, mutable copy of its history.
+     */
+    public record SessionHistory(String sessionId, List<Message> messages) {
+    }
+}
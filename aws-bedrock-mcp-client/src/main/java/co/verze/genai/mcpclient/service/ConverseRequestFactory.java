@@ -0,0 +1,104 @@
+package co.verze.genai.mcpclient.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.CachePointBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.CachePointType;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InferenceConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.Tool;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+
+/**
+ * Builds the Converse and ConverseStream requests of the agent loop so that
+ * the blocking and the streaming paths send the model exactly the same thing.
+ * <p>
+ * With prompt caching enabled a cache point is placed after the tool definitions and after the
+ * last message, so every later turn and follow-up question reads the stable prefix from the cache.
+ * <p>
+ * {@code maxTokens} and the call timeout come from the query budget, so every turn gets what is left of it.
+ * The conversation is compacted by the {@link HistoryCompactor} before the cache point is placed.
+ */
+public class ConverseRequestFactory {
+    private static final CachePointBlock CACHE_POINT = CachePointBlock.builder()
+            .type(CachePointType.DEFAULT)
+            .build();
+    private static final Duration MIN_CALL_TIMEOUT = Duration.ofMillis(1);
+    private final boolean promptCaching;
+    private final float temperature;
+    private final HistoryCompactor historyCompactor;
+
+    public ConverseRequestFactory(boolean promptCaching, float temperature, HistoryCompactor historyCompactor) {
+        this.promptCaching = promptCaching;
+        this.temperature = temperature;
+        this.historyCompactor = historyCompactor;
+    }
+
+    public ConverseRequest converseRequest(String modelId, List<Message> messages,
+                                           ToolConfiguration toolConfiguration, QueryBudget.Tracker budget) {
+        return ConverseRequest.builder()
+                .modelId(modelId)
+                .messages(withCachePoint(historyCompactor.compact(messages)))
+                .inferenceConfig(inferenceConfig(budget))
+                .toolConfig(withCachePoint(toolConfiguration))
+                .overrideConfiguration(timeout(budget))
+                .build();
+    }
+
+    public ConverseStreamRequest converseStreamRequest(String modelId, List<Message> messages,
+                                                       ToolConfiguration toolConfiguration,
+                                                       QueryBudget.Tracker budget) {
+        return ConverseStreamRequest.builder()
+                .modelId(modelId)
+                .messages(withCachePoint(historyCompactor.compact(messages)))
+                .inferenceConfig(inferenceConfig(budget))
+                .toolConfig(withCachePoint(toolConfiguration))
+                .overrideConfiguration(timeout(budget))
+                .build();
+    }
+
+    private InferenceConfiguration inferenceConfig(QueryBudget.Tracker budget) {
+        return InferenceConfiguration.builder()
+                .maxTokens(budget.nextMaxTokens())
+                .temperature(temperature)
+                .build();
+    }
+
+    // A call may not outlive the query, the loops only check the time budget between turns
+    private static AwsRequestOverrideConfiguration timeout(QueryBudget.Tracker budget) {
+        Duration remaining = budget.remainingTime();
+        return AwsRequestOverrideConfiguration.builder()
+                .apiCallTimeout(remaining.isNegative() || remaining.isZero() ? MIN_CALL_TIMEOUT : remaining)
+                .build();
+    }
+
+    private ToolConfiguration withCachePoint(ToolConfiguration toolConfiguration) {
+        if (!promptCaching) {
+            return toolConfiguration;
+        }
+        List<Tool> tools = new ArrayList<>(toolConfiguration.tools().size() + 1);
+        tools.addAll(toolConfiguration.tools());
+        tools.add(Tool.fromCachePoint(CACHE_POINT));
+        return toolConfiguration.toBuilder().tools(tools).build();
+    }
+
+    // The conversation itself is left untouched, only the copy sent to Bedrock carries the cache point
+    private List<Message> withCachePoint(List<Message> messages) {
+        if (!promptCaching || messages.isEmpty()) {
+            return messages;
+        }
+        List<Message> cached = new ArrayList<>(messages);
+        Message last = cached.get(cached.size() - 1);
+        List<ContentBlock> content = new ArrayList<>(last.content().size() + 1);
+        content.addAll(last.content());
+        content.add(ContentBlock.fromCachePoint(CACHE_POINT));
+        cached.set(cached.size() - 1, last.toBuilder().content(content).build());
+        return cached;
+    }
+}
@@ -0,0 +1,221 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultContentBlock;
+
+/**
+ * Shrinks the conversation sent to Bedrock, every earlier tool result would otherwise be sent again on every turn.
+ * <p>
+ * The policies are applied in order, the later ones only while the estimated prompt exceeds the target size:
+ * <ol>
+ *     <li>Tool results longer than {@code maxToolResultChars} are clipped to their head and tail</li>
+ *     <li>Tool results older than {@code keepToolResultTurns} tool turns are replaced by a placeholder</li>
+ *     <li>Earlier question and answer exchanges are replaced by a short summary, then dropped oldest first</li>
+ *     <li>Tool results of the current exchange but the latest are replaced by a placeholder</li>
+ * </ol>
+ * A toolResult block is never removed, only its content is replaced, so every toolUse keeps its result and the role
+ * alternation is unchanged. The compaction only depends on the history, so the compacted prefix stays the same from
+ * one turn to the next and still hits the prompt cache, until a tool result ages out.
+ * <p>
+ * The conversation itself is left untouched, only the copy sent to Bedrock is compacted.
+ *
+ * @see ConverseRequestFactory
+ */
+public class HistoryCompactor {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryCompactor.class);
+    // Close enough for English text and JSON, Bedrock reports the actual count in the usage
+    private static final int CHARS_PER_TOKEN = 4;
+    static final String STALE_TOOL_RESULT = "[Earlier tool result removed to save space, call the tool again if needed]";
+    private final Policy policy;
+
+    /**
+     * Compaction policy, a zero or negative value disables the respective step.
+     *
+     * @param maxToolResultChars  Tool result text longer than this is clipped to its head and tail
+     * @param keepToolResultTurns Tool results of this many latest tool turns are kept
+     * @param targetTokens        Estimated prompt size to compact down to
+     * @param summaryChars        Length of the question and the answer kept of a summarised exchange
+     */
+    public record Policy(int maxToolResultChars, int keepToolResultTurns, long targetTokens, int summaryChars) {
+    }
+
+    public HistoryCompactor(Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @param messages The conversation, starting with a user query
+     * @return A compacted copy
+     */
+    public List<Message> compact(List<Message> messages) {
+        List<Message> compacted = new ArrayList<>(messages.size());
+        int toolTurns = (int) messages.stream().filter(HistoryCompactor::hasToolResults).count();
+        int toolTurn = 0;
+        for (Message message : messages) {
+            if (hasToolResults(message)) {
+                boolean stale = policy.keepToolResultTurns() > 0 && toolTurns - toolTurn > policy.keepToolResultTurns();
+                message = stale ? withStaleToolResults(message) : withClippedToolResults(message);
+                toolTurn++;
+            }
+            compacted.add(message);
+        }
+
+        if (policy.targetTokens() > 0) {
+            long before = estimateTokens(compacted);
+            if (before > policy.targetTokens()) {
+                fitToTarget(compacted);
+                logger.debug("Compacted conversation of {} messages from ~{} to ~{} tokens",
+                        messages.size(), before, estimateTokens(compacted));
+            }
+        }
+        return compacted;
+    }
+
+    private void fitToTarget(List<Message> messages) {
+        // Summarise the earlier exchanges oldest first, the current one is still needed as it is
+        int start = 0;
+        for (int end = nextExchange(messages, 0); end < messages.size() && overTarget(messages); ) {
+            if (end - start > 2) {
+                List<Message> summary = summarise(messages.subList(start, end));
+                messages.subList(start, end).clear();
+                messages.addAll(start, summary);
+                end = start + summary.size();
+            }
+            start = end;
+            end = nextExchange(messages, start);
+        }
+        // Then drop them altogether
+        for (int end = nextExchange(messages, 0); end < messages.size() && overTarget(messages);
+             end = nextExchange(messages, 0)) {
+            messages.subList(0, end).clear();
+        }
+        // And finally the earlier tool results of the current exchange
+        int latestToolResults = messages.size() - 1;
+        while (latestToolResults >= 0 && !hasToolResults(messages.get(latestToolResults))) {
+            latestToolResults--;
+        }
+        for (int i = 0; i < latestToolResults && overTarget(messages); i++) {
+            if (hasToolResults(messages.get(i))) {
+                messages.set(i, withStaleToolResults(messages.get(i)));
+            }
+        }
+    }
+
+    private boolean overTarget(List<Message> messages) {
+        return estimateTokens(messages) > policy.targetTokens();
+    }
+
+    // The index of the user query starting the next exchange, or the size of the conversation
+    private static int nextExchange(List<Message> messages, int from) {
+        int next = from + 1;
+        while (next < messages.size() && !AgentTurns.isUserQuery(messages.get(next))) {
+            next++;
+        }
+        return next;
+    }
+
+    // The question and the final answer of an exchange, keeping the role alternation
+    private List<Message> summarise(List<Message> exchange) {
+        Message query = exchange.get(0);
+        Message answer = exchange.get(exchange.size() - 1);
+        if (answer.role() != ConversationRole.ASSISTANT) {
+            return exchange;
+        }
+        return List.of(
+                Message.builder().role(ConversationRole.USER)
+                        .content(ContentBlock.fromText(clip(text(query), policy.summaryChars())))
+                        .build(),
+                Message.builder().role(ConversationRole.ASSISTANT)
+                        .content(ContentBlock.fromText("[Summary of an earlier answer] "
+                                + clip(text(answer), policy.summaryChars())))
+                        .build());
+    }
+
+    private Message withClippedToolResults(Message message) {
+        if (policy.maxToolResultChars() <= 0) {
+            return message;
+        }
+        return withToolResults(message, toolResult -> toolResult.toBuilder()
+                .content(toolResult.content().stream()
+                        .map(content -> content.text() != null && content.text().length() > policy.maxToolResultChars()
+                                ? ToolResultContentBlock.fromText(clip(content.text(), policy.maxToolResultChars()))
+                                : content)
+                        .toList())
+                .build());
+    }
+
+    private static Message withStaleToolResults(Message message) {
+        return withToolResults(message, toolResult -> toolResult.toBuilder()
+                .content(ToolResultContentBlock.fromText(STALE_TOOL_RESULT))
+                .build());
+    }
+
+    private static Message withToolResults(Message message,
+                                           UnaryOperator<ToolResultBlock> compaction) {
+        return message.toBuilder()
+                .content(message.content().stream()
+                        .map(content -> content.toolResult() != null
+                                ? ContentBlock.fromToolResult(compaction.apply(content.toolResult()))
+                                : content)
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Keep the head and the tail of a text, the head is where pages and documents say what they are about.
+     */
+    static String clip(String text, int maxChars) {
+        if (maxChars <= 0 || text.length() <= maxChars) {
+            return text;
+        }
+        int head = maxChars * 3 / 4;
+        int tail = maxChars - head;
+        return text.substring(0, head)
+                + "\n[... " + (text.length() - maxChars) + " characters clipped ...]\n"
+                + text.substring(text.length() - tail);
+    }
+
+    /**
+     * Estimate the input tokens of a conversation from its length.
+     */
+    static long estimateTokens(List<Message> messages) {
+        long chars = 0;
+        for (Message message : messages) {
+            for (ContentBlock content : message.content()) {
+                if (content.text() != null) {
+                    chars += content.text().length();
+                } else if (content.toolUse() != null) {
+                    chars += String.valueOf(content.toolUse().input()).length();
+                } else if (content.toolResult() != null) {
+                    for (ToolResultContentBlock result : content.toolResult().content()) {
+                        chars += result.text() != null ? result.text().length() : String.valueOf(result.json()).length();
+                    }
+                }
+            }
+        }
+        return chars / CHARS_PER_TOKEN;
+    }
+
+    private static boolean hasToolResults(Message message) {
+        return message.role() == ConversationRole.USER
+                && message.content().stream().anyMatch(content -> content.toolResult() != null);
+    }
+
+    private static String text(Message message) {
+        return message.content().stream()
+                .filter(content -> content.text() != null)
+                .map(ContentBlock::text)
+                .findFirst()
+                .orElse("");
+    }
+}
@@ -0,0 +1,124 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.modelcontextprotocol.spec.ClientMcpTransport;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCMessage;
+import io.modelcontextprotocol.spec.McpTransport;
+import io.modelcontextprotocol.spec.ServerMcpTransport;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * A pair of MCP transports connecting a client and a server in the same JVM.
+ * <p>
+ * Messages are handed over as objects, nothing is serialized. Each direction is received in order on its own
+ * thread and, like the stdio transports, handed to the session without waiting for the previous message to be
+ * handled, so a slow tool call doesn't hold up the others. Request parameters and results reach the other side
+ * as the instances that were sent, so {@link #unmarshalFrom} only converts when the types differ.
+ */
+public final class InProcessTransport {
+
+    private InProcessTransport() {
+    }
+
+    /**
+     * Create a connected client and server transport.
+     */
+    public static Pair create(ObjectMapper objectMapper) {
+        Sinks.Many<JSONRPCMessage> toServer = Sinks.many().unicast().onBackpressureBuffer();
+        Sinks.Many<JSONRPCMessage> toClient = Sinks.many().unicast().onBackpressureBuffer();
+        return new Pair(
+                new Client(toServer, toClient.asFlux(), objectMapper),
+                new Server(toClient, toServer.asFlux(), objectMapper));
+    }
+
+    public record Pair(ClientMcpTransport client, ServerMcpTransport server) {
+    }
+
+    private static final class Client extends Endpoint implements ClientMcpTransport {
+        Client(Sinks.Many<JSONRPCMessage> outbound, Flux<JSONRPCMessage> inbound, ObjectMapper objectMapper) {
+            super("mcp-in-process-client", outbound, inbound, objectMapper);
+        }
+    }
+
+    private static final class Server extends Endpoint implements ServerMcpTransport {
+        Server(Sinks.Many<JSONRPCMessage> outbound, Flux<JSONRPCMessage> inbound, ObjectMapper objectMapper) {
+            super("mcp-in-process-server", outbound, inbound, objectMapper);
+        }
+    }
+
+    private abstract static class Endpoint implements McpTransport {
+        private final Sinks.Many<JSONRPCMessage> outbound;
+        private final Flux<JSONRPCMessage> inbound;
+        private final ObjectMapper objectMapper;
+        private final Scheduler scheduler;
+        private volatile Disposable connection;
+
+        Endpoint(String name, Sinks.Many<JSONRPCMessage> outbound, Flux<JSONRPCMessage> inbound,
+                 ObjectMapper objectMapper) {
+            this.outbound = outbound;
+            this.inbound = inbound;
+            this.objectMapper = objectMapper;
+            this.scheduler = Schedulers.newSingle(name, true);
+        }
+
+        @Override
+        public Mono<Void> connect(Function<Mono<JSONRPCMessage>, Mono<JSONRPCMessage>> handler) {
+            // Messages sent before the other side connects stay buffered in its sink
+            connection = inbound.publishOn(scheduler)
+                    // Sync tools run on boundedElastic, so concurrent requests are handled concurrently
+                    .flatMap(message -> handler.apply(Mono.just(message)))
+                    // Once the other side has closed its end there is nothing left to deliver
+                    .doFinally(signal -> scheduler.dispose())
+                    .subscribe();
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> sendMessage(JSONRPCMessage message) {
+            return Mono.defer(() -> {
+                Sinks.EmitResult result;
+                // A unicast sink must not be emitted to concurrently
+                synchronized (outbound) {
+                    result = outbound.tryEmitNext(message);
+                }
+                return result.isSuccess()
+                        ? Mono.empty()
+                        : Mono.error(new IllegalStateException("Failed to deliver message in process: " + result));
+            });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+            JavaType type = objectMapper.getTypeFactory().constructType(typeRef);
+            if (data != null && !type.hasGenericTypes() && type.getRawClass().isInstance(data)) {
+                return (T) data;
+            }
+            return objectMapper.convertValue(data, type);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return Mono.fromRunnable(() -> {
+                synchronized (outbound) {
+                    outbound.tryEmitComplete();
+                }
+                Disposable current = connection;
+                if (current != null) {
+                    current.dispose();
+                }
+                scheduler.dispose();
+            });
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpError;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * A pool of MCP clients, each one talking to its own MCP server, a process or a server hosted in process.
+ * <p>
+ * Every call is routed to the healthy client with the fewest calls in flight. When even that client
+ * has {@code scaleUpQueueDepth} calls queued and the pool is below {@code maxSize}, another server
+ * process is launched in the background. Clients failing with a transport error are pinged and
+ * replaced when they no longer respond.
+ * <p>
+ * Calls can be made blocking or non-blocking, both share the same clients and load accounting.
+ * <p>
+ * The first {@code minSize} servers are launched concurrently in the background, so creating the pool doesn't
+ * wait for them. The server processes can be stopped with {@link #suspend()} and relaunched with
+ * {@link #resume()}. Calls made while a launch is in progress wait for it, see {@link #ready()}.
+ * <p>
+ * A failed launch or replacement is retried with exponential backoff until {@code minSize} clients are healthy
+ * again. A call finding no healthy client waits for the launch underway, or starts one once the backoff has passed.
+ */
+public class McpClientPool implements ToolClient, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(McpClientPool.class);
+    private static final long INITIAL_RETRY_MILLIS = 1_000;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+    private final Supplier<McpAsyncClient> clientFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final int scaleUpQueueDepth;
+    private final List<PooledClient> clients = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean launching = new AtomicBoolean();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final ExecutorService maintenance = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile CompletableFuture<Void> ready;
+    private final AtomicInteger failedLaunches = new AtomicInteger();
+    // End of the backoff after a failed launch, no relaunch starts before it
+    private volatile long retryAtNanos = System.nanoTime();
+    // Suspended or closed, nothing is launched
+    private volatile boolean stopped;
+
+    /**
+     * @param clientFactory     Launches a server process and returns an initialized client for it
+     * @param minSize           Number of clients started up front and kept alive
+     * @param maxSize           Upper bound on the number of clients
+     * @param scaleUpQueueDepth In flight calls on the least busy client that trigger a scale up
+     */
+    public McpClientPool(Supplier<McpAsyncClient> clientFactory, int minSize, int maxSize, int scaleUpQueueDepth) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid MCP pool size, min " + minSize + ", max " + maxSize);
+        }
+        this.clientFactory = clientFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.scaleUpQueueDepth = scaleUpQueueDepth;
+
+        logger.info("Starting MCP client pool with min size {}, max size {}", minSize, maxSize);
+        this.ready = launchInBackground();
+    }
+
+    /**
+     * Completes once the servers being launched have started, successfully or not.
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    /**
+     * @return True when at least one client can take calls
+     */
+    public boolean isAvailable() {
+        return clients.stream().anyMatch(client -> client.healthy.get());
+    }
+
+    @Override
+    public CallToolResult callTool(CallToolRequest request) {
+        return dispatch(client -> client.callTool(request));
+    }
+
+    public ListToolsResult listTools() {
+        return dispatch(McpSyncClient::listTools);
+    }
+
+    /**
+     * Non-blocking variant of {@link #callTool(CallToolRequest)}, a client is picked on subscription.
+     */
+    @Override
+    public Mono<CallToolResult> callToolAsync(CallToolRequest request) {
+        // Waits for a launch in progress without blocking, the shared future must not be cancelled by one caller
+        return Mono.fromFuture(() -> ready, true)
+                .then(Mono.defer(() -> {
+                    PooledClient pooledClient = leastBusy();
+                    return pooledClient != null
+                            ? Mono.just(pooledClient)
+                            : Mono.fromFuture(this::relaunch, true).then(Mono.fromCallable(() -> healthy(leastBusy())));
+                }))
+                .flatMap(pooledClient -> pooledClient.asyncClient.callTool(request)
+                        .doOnSuccess(result -> pooledClient.served.incrementAndGet())
+                        .doOnError(e -> !(e instanceof McpError), e -> checkHealth(pooledClient))
+                        .doFinally(signal -> pooledClient.inFlight.decrementAndGet()));
+    }
+
+    public List<ClientStats> getStats() {
+        return clients.stream()
+                .map(client -> new ClientStats(client.id, client.healthy.get(), client.inFlight.get(), client.served.get()))
+                .toList();
+    }
+
+    private <T> T dispatch(Function<McpSyncClient, T> call) {
+        PooledClient pooledClient = acquire();
+        try {
+            T result = call.apply(pooledClient.client);
+            pooledClient.served.incrementAndGet();
+            return result;
+        } catch (McpError e) {
+            // The server answered with an error, the process itself is fine
+            throw e;
+        } catch (RuntimeException e) {
+            checkHealth(pooledClient);
+            throw e;
+        } finally {
+            pooledClient.inFlight.decrementAndGet();
+        }
+    }
+
+    private PooledClient acquire() {
+        ready.join();
+        PooledClient pooledClient = leastBusy();
+        if (pooledClient == null) {
+            // Every client failed, the call waits for the relaunch rather than fail at once
+            relaunch().join();
+            pooledClient = leastBusy();
+        }
+        return healthy(pooledClient);
+    }
+
+    private static PooledClient healthy(PooledClient pooledClient) {
+        if (pooledClient == null) {
+            throw new IllegalStateException("No healthy MCP server available");
+        }
+        return pooledClient;
+    }
+
+    // The healthy client with the fewest calls in flight, counting the new call, null when there is none
+    private PooledClient leastBusy() {
+        PooledClient leastBusy = clients.stream()
+                .filter(client -> client.healthy.get())
+                .min(Comparator.comparingInt(client -> client.inFlight.get()))
+                .orElse(null);
+        if (leastBusy == null) {
+            return null;
+        }
+
+        int queued = leastBusy.inFlight.incrementAndGet();
+        if (queued > scaleUpQueueDepth && clients.size() < maxSize) {
+            scaleUp();
+        }
+        return leastBusy;
+    }
+
+    private void scaleUp() {
+        // Only one launch at a time, a second one would just race the first for the same load
+        if (!launching.compareAndSet(false, true)) {
+            return;
+        }
+        maintenance.execute(() -> {
+            try {
+                if (clients.size() < maxSize) {
+                    clients.add(launch());
+                    logger.info("Scaled MCP client pool up to {} clients", clients.size());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to scale up MCP client pool", e);
+            } finally {
+                launching.set(false);
+            }
+        });
+    }
+
+    private void checkHealth(PooledClient pooledClient) {
+        maintenance.execute(() -> {
+            try {
+                pooledClient.client.ping();
+            } catch (RuntimeException e) {
+                if (pooledClient.healthy.compareAndSet(true, false)) {
+                    logger.warn("MCP client {} is not responding, replacing it", pooledClient.id, e);
+                    replace(pooledClient);
+                }
+            }
+        });
+    }
+
+    private void replace(PooledClient unhealthy) {
+        clients.remove(unhealthy);
+        try {
+            unhealthy.client.close();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to close MCP client {}", unhealthy.id, e);
+        }
+        relaunch();
+    }
+
+    private long healthyClients() {
+        return clients.stream().filter(client -> client.healthy.get()).count();
+    }
+
+    private PooledClient launch() {
+        int id = nextId.incrementAndGet();
+        logger.info("Launching MCP client {}", id);
+        return new PooledClient(id, clientFactory.get());
+    }
+
+    /**
+     * Stop every server process, for example before a snapshot is taken.
+     */
+    public synchronized void suspend() {
+        stopped = true;
+        ready.join();
+        logger.info("Suspending MCP client pool, stopping {} clients", clients.size());
+        List<PooledClient> suspended = List.copyOf(clients);
+        clients.clear();
+        suspended.forEach(pooledClient -> {
+            try {
+                pooledClient.client.closeGracefully();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to close MCP client {}", pooledClient.id, e);
+            }
+        });
+    }
+
+    /**
+     * Relaunch the server processes in the background after {@link #suspend()}.
+     */
+    public synchronized void resume() {
+        logger.info("Resuming MCP client pool with {} clients", minSize);
+        stopped = false;
+        failedLaunches.set(0);
+        retryAtNanos = System.nanoTime();
+        ready = launchInBackground();
+    }
+
+    // Launches the missing clients unless a launch is underway or the backoff after a failed one hasn't passed
+    private synchronized CompletableFuture<Void> relaunch() {
+        if (ready.isDone() && !stopped && System.nanoTime() - retryAtNanos >= 0) {
+            ready = launchInBackground();
+        }
+        return ready;
+    }
+
+    // Every launch boots a server and waits for the MCP handshake, so they run side by side
+    private CompletableFuture<Void> launchInBackground() {
+        CompletableFuture<?>[] launches = LongStream.range(healthyClients(), minSize)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> clients.add(launch()), maintenance)
+                        .exceptionally(e -> {
+                            logger.error("Failed to launch MCP client", e);
+                            return null;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(launches).thenRun(this::retryIfShort);
+    }
+
+    private void retryIfShort() {
+        long healthy = healthyClients();
+        if (stopped || healthy >= minSize) {
+            failedLaunches.set(0);
+            return;
+        }
+        long delayMillis = Math.min(MAX_RETRY_MILLIS, INITIAL_RETRY_MILLIS << Math.min(failedLaunches.getAndIncrement(), 5));
+        retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        logger.warn("MCP client pool has {} of {} healthy clients, launching again in {} ms", healthy, minSize, delayMillis);
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, maintenance).execute(this::relaunch);
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+        maintenance.shutdownNow();
+        clients.forEach(pooledClient -> pooledClient.client.close());
+        clients.clear();
+    }
+
+    private static class PooledClient {
+        private final int id;
+        private final McpAsyncClient asyncClient;
+        private final McpSyncClient client;
+        private final AtomicBoolean healthy = new AtomicBoolean(true);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong served = new AtomicLong();
+
+        PooledClient(int id, McpAsyncClient asyncClient) {
+            this.id = id;
+            this.asyncClient = asyncClient;
+            this.client = new McpSyncClient(asyncClient);
+        }
+    }
+
+    /**
+     * Load and health of one pooled client.
+     */
+    public record ClientStats(int id, boolean healthy, int inFlight, long served) {
+    }
+}
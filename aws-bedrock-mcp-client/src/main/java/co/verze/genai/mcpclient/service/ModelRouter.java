@@ -0,0 +1,239 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultStatus;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+/**
+ * Picks the model of every turn from two tiers, small and fast or large and capable.
+ * <p>
+ * A query starts on the small tier when it is short and asks for nothing that needs the large model, like
+ * summarising a web page. It moves to the large tier for the rest of the query as soon as a turn calls a tool
+ * outside {@code lightTools} or a tool fails, and never moves back so the prompt cache of the large model is reused.
+ * <p>
+ * Within a tier the model with the lowest latency EWMA is chosen, skipping models whose error rate EWMA is above
+ * {@link #MAX_ERROR_RATE}. When every small model is failing the large tier is used instead. The error rate decays
+ * while a model isn't called, so a skipped model is tried again a little while after a burst of errors, like
+ * throttling, and skipped again if it still fails. Only failures of the model count, see {@link #isModelFailure}.
+ */
+public class ModelRouter {
+    private static final Logger logger = LoggerFactory.getLogger(ModelRouter.class);
+    // Weight of the latest call in the moving averages
+    private static final double ALPHA = 0.2;
+    static final double MAX_ERROR_RATE = 0.5;
+    // Four failures in a row put the error rate at 0.59, back below the maximum after about 7 seconds
+    static final long ERROR_RATE_HALF_LIFE_NANOS = 30_000_000_000L;
+    private static final Pattern LARGE_QUERY = Pattern.compile(
+            "https?://|summar|explain|compare|analy[sz]|write|plan|review|translate|why", Pattern.CASE_INSENSITIVE);
+    private final List<String> smallModels;
+    private final List<String> largeModels;
+    private final Set<String> lightTools;
+    private final int smallQueryMaxChars;
+    private final Map<String, ModelStats> stats = new LinkedHashMap<>();
+
+    public enum Tier {
+        SMALL,
+        LARGE
+    }
+
+    /**
+     * @param smallModels        Model ids of the small tier, may be empty to always use the large tier
+     * @param largeModels        Model ids of the large tier, at least one
+     * @param lightTools         Tools whose results the small models handle well
+     * @param smallQueryMaxChars Longer queries start on the large tier
+     */
+    public ModelRouter(List<String> smallModels, List<String> largeModels, Set<String> lightTools,
+                       int smallQueryMaxChars) {
+        if (largeModels.isEmpty()) {
+            throw new IllegalArgumentException("At least one large model is required");
+        }
+        this.smallModels = List.copyOf(smallModels);
+        this.largeModels = List.copyOf(largeModels);
+        this.lightTools = Set.copyOf(lightTools);
+        this.smallQueryMaxChars = smallQueryMaxChars;
+        smallModels.forEach(modelId -> stats.put(modelId, new ModelStats(Tier.SMALL)));
+        largeModels.forEach(modelId -> stats.put(modelId, new ModelStats(Tier.LARGE)));
+    }
+
+    /**
+     * Route a query.
+     *
+     * @param query    The query text
+     * @param override A tier name or one of the configured model ids chosen by the caller, may be null
+     * @return The route of the query, used for all its turns
+     * @throws IllegalArgumentException If the override is neither a tier nor a configured model
+     */
+    public Route route(String query, String override) {
+        if (override != null && !override.isBlank()) {
+            if (stats.containsKey(override)) {
+                return new Route(stats.get(override).tier, override);
+            }
+            try {
+                return new Route(Tier.valueOf(override.trim().toUpperCase(Locale.ROOT)), null);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown model or tier: " + override, e);
+            }
+        }
+        return new Route(classify(query), null);
+    }
+
+    /**
+     * The model to use for an internal call outside of any query, like warming up connections.
+     */
+    public String defaultModel() {
+        return largeModels.get(0);
+    }
+
+    public List<ModelStats.Snapshot> getStats() {
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * Whether a failed call counts against the model, throttling, server errors and attempt timeouts do. A bad
+     * request, a query running out of its budget, a cancelled query or a client going away say nothing about it.
+     */
+    static boolean isModelFailure(Throwable failure) {
+        for (Throwable e = failure; e != null; e = e.getCause()) {
+            if (e instanceof SdkServiceException serviceException) {
+                return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+            }
+            if (e instanceof SdkException) {
+                return e instanceof ApiCallAttemptTimeoutException;
+            }
+        }
+        return false;
+    }
+
+    private Tier classify(String query) {
+        if (smallModels.isEmpty() || query == null || query.length() > smallQueryMaxChars
+                || LARGE_QUERY.matcher(query).find()) {
+            return Tier.LARGE;
+        }
+        return Tier.SMALL;
+    }
+
+    private String pick(Tier tier) {
+        List<String> candidates = tier == Tier.SMALL ? smallModels : largeModels;
+        Comparator<String> byLatency = Comparator.comparingDouble(modelId -> stats.get(modelId).latencyMs());
+        return candidates.stream()
+                .filter(modelId -> stats.get(modelId).errorRate() <= MAX_ERROR_RATE)
+                .min(byLatency)
+                .orElseGet(() -> tier == Tier.SMALL
+                        ? pick(Tier.LARGE)
+                        : candidates.stream()
+                                .min(Comparator.comparingDouble(modelId -> stats.get(modelId).errorRate()))
+                                .orElseThrow());
+    }
+
+    /**
+     * The model choice of a single query.
+     */
+    public class Route {
+        private volatile Tier tier;
+        private final String pinnedModel;
+
+        private Route(Tier tier, String pinnedModel) {
+            this.tier = tier;
+            this.pinnedModel = pinnedModel;
+        }
+
+        /**
+         * The model of the next turn.
+         */
+        public String model() {
+            return pinnedModel != null ? pinnedModel : pick(tier);
+        }
+
+        public Tier tier() {
+            return tier;
+        }
+
+        /**
+         * Escalate to the large tier when the tool calls of a turn need it.
+         */
+        public void afterToolTurn(List<ToolUseBlock> toolUses, List<ToolResultBlock> toolResults) {
+            if (pinnedModel != null || tier == Tier.LARGE) {
+                return;
+            }
+            boolean heavy = toolUses.stream().anyMatch(toolUse -> !lightTools.contains(toolUse.name()));
+            boolean failed = toolResults.stream().anyMatch(toolResult -> toolResult.status() == ToolResultStatus.ERROR);
+            if (heavy || failed) {
+                logger.info("Escalating query to the large tier after {}", heavy ? "a heavy tool call" : "a tool error");
+                tier = Tier.LARGE;
+            }
+        }
+
+        /**
+         * Record the outcome of a Bedrock call made on this route.
+         *
+         * @param failure Why the call failed, null when it succeeded
+         */
+        public void recordCall(String modelId, long latencyNanos, Throwable failure) {
+            ModelStats modelStats = stats.get(modelId);
+            if (modelStats != null && (failure == null || isModelFailure(failure))) {
+                modelStats.record(latencyNanos / 1_000_000.0, failure != null);
+            }
+        }
+    }
+
+    /**
+     * Moving averages of the calls to one model.
+     */
+    public static class ModelStats {
+        private final Tier tier;
+        // Unmeasured models start at zero, so each one is tried before the averages decide
+        private double latencyMs;
+        private double errorRate;
+        private long errorRateNanos = System.nanoTime();
+
+        ModelStats(Tier tier) {
+            this.tier = tier;
+        }
+
+        synchronized void record(double callLatencyMs, boolean failed) {
+            // A failed call says little about the latency, only about the error rate
+            if (!failed) {
+                latencyMs = latencyMs == 0 ? callLatencyMs : ALPHA * callLatencyMs + (1 - ALPHA) * latencyMs;
+            }
+            long now = System.nanoTime();
+            errorRate = ALPHA * (failed ? 1 : 0) + (1 - ALPHA) * errorRate(now);
+            errorRateNanos = now;
+        }
+
+        synchronized double latencyMs() {
+            return latencyMs;
+        }
+
+        synchronized double errorRate() {
+            return errorRate(System.nanoTime());
+        }
+
+        // Halves with every half-life without a call
+        synchronized double errorRate(long nowNanos) {
+            return errorRate * Math.pow(0.5, (double) (nowNanos - errorRateNanos) / ERROR_RATE_HALF_LIFE_NANOS);
+        }
+
+        synchronized Snapshot snapshot(String modelId) {
+            return new Snapshot(modelId, tier, latencyMs, errorRate());
+        }
+
+        public record Snapshot(String modelId, Tier tier, double latencyMs, double errorRate) {
+        }
+    }
+}
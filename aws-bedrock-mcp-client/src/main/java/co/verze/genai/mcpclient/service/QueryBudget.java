@@ -0,0 +1,135 @@
+package co.verze.genai.mcpclient.service;
+
+import java.time.Duration;
+
+import software.amazon.awssdk.services.bedrockruntime.model.TokenUsage;
+
+/**
+ * What a single query may spend, in turns, tokens and wall-clock time.
+ * <p>
+ * The agent loops track the spending with a {@link Tracker}: every response's usage is recorded, the
+ * {@code maxTokens} of the next turn is what is left of the output budget, capped by {@code maxTokensPerTurn},
+ * and no further turn is started once one of the budgets can't afford it.
+ *
+ * @param maxTurns         Model responses at most
+ * @param maxInputTokens   Input tokens processed over all turns, cache reads and writes included
+ * @param maxOutputTokens  Output tokens over all turns
+ * @param maxTokensPerTurn Upper bound of {@code maxTokens} for a single response
+ * @param maxDuration      Wall-clock time for the whole query, also the timeout of each Bedrock call
+ */
+public record QueryBudget(int maxTurns, long maxInputTokens, long maxOutputTokens, int maxTokensPerTurn,
+                          Duration maxDuration) {
+    public static final String TIME = "budget_time";
+    public static final String INPUT_TOKENS = "budget_input_tokens";
+    public static final String OUTPUT_TOKENS = "budget_output_tokens";
+    // A response shorter than this is rarely of any use
+    static final int MIN_TOKENS_PER_TURN = 256;
+
+    /**
+     * Tighten this budget with the limits a caller asked for, a caller can't exceed the configured budget.
+     *
+     * @return A budget with the lower of each limit, null limits are left as they are
+     * @throws IllegalArgumentException When a limit isn't positive
+     */
+    public QueryBudget narrow(Integer maxTurns, Long maxInputTokens, Long maxOutputTokens, Integer maxSeconds) {
+        requirePositive("maxTurns", maxTurns);
+        requirePositive("maxInputTokens", maxInputTokens);
+        requirePositive("maxOutputTokens", maxOutputTokens);
+        requirePositive("maxSeconds", maxSeconds);
+        return new QueryBudget(
+                maxTurns != null ? Math.min(maxTurns, this.maxTurns) : this.maxTurns,
+                maxInputTokens != null ? Math.min(maxInputTokens, this.maxInputTokens) : this.maxInputTokens,
+                maxOutputTokens != null ? Math.min(maxOutputTokens, this.maxOutputTokens) : this.maxOutputTokens,
+                maxTokensPerTurn,
+                maxSeconds != null && Duration.ofSeconds(maxSeconds).compareTo(maxDuration) < 0
+                        ? Duration.ofSeconds(maxSeconds) : maxDuration);
+    }
+
+    private static void requirePositive(String name, Number limit) {
+        if (limit != null && limit.longValue() <= 0) {
+            throw new IllegalArgumentException(name + " must be positive, got " + limit);
+        }
+    }
+
+    /**
+     * Start spending this budget, the clock starts now.
+     */
+    public Tracker start() {
+        return new Tracker(this);
+    }
+
+    /**
+     * The spending of one query. Turns are sequential, so it is only ever used by one thread at a time.
+     */
+    public static class Tracker {
+        private final QueryBudget budget;
+        private final long startNanos = System.nanoTime();
+        private long inputTokens;
+        private long outputTokens;
+        private long lastInputTokens;
+
+        Tracker(QueryBudget budget) {
+            this.budget = budget;
+        }
+
+        public QueryBudget budget() {
+            return budget;
+        }
+
+        /**
+         * Record the usage of a response, may be null when Bedrock didn't report it.
+         */
+        public void record(TokenUsage usage) {
+            if (usage == null) {
+                return;
+            }
+            lastInputTokens = valueOf(usage.inputTokens())
+                    + valueOf(usage.cacheReadInputTokens())
+                    + valueOf(usage.cacheWriteInputTokens());
+            inputTokens += lastInputTokens;
+            outputTokens += valueOf(usage.outputTokens());
+        }
+
+        /**
+         * The {@code maxTokens} of the next response.
+         */
+        public int nextMaxTokens() {
+            return (int) Math.max(1, Math.min(budget.maxTokensPerTurn(), budget.maxOutputTokens() - outputTokens));
+        }
+
+        public Duration remainingTime() {
+            return budget.maxDuration().minusNanos(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Why another turn can't be afforded. The next turn reads the whole conversation again, which is at
+         * least as long as the input of the last turn.
+         *
+         * @return {@link #TIME}, {@link #OUTPUT_TOKENS}, {@link #INPUT_TOKENS} or null while another turn fits
+         */
+        public String exhausted() {
+            if (remainingTime().compareTo(Duration.ZERO) <= 0) {
+                return TIME;
+            }
+            if (budget.maxOutputTokens() - outputTokens < Math.min(MIN_TOKENS_PER_TURN, budget.maxTokensPerTurn())) {
+                return OUTPUT_TOKENS;
+            }
+            if (inputTokens + lastInputTokens > budget.maxInputTokens()) {
+                return INPUT_TOKENS;
+            }
+            return null;
+        }
+
+        public long inputTokens() {
+            return inputTokens;
+        }
+
+        public long outputTokens() {
+            return outputTokens;
+        }
+
+        private static long valueOf(Integer tokens) {
+            return tokens != null ? tokens : 0;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package co.verze.genai.mcpclient.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import co.verze.genai.mcpclient.utils.DocumentUtils;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.document.Document;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlockDeltaEvent;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlockStartEvent;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamMetadataEvent;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamResponseHandler;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.StopReason;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+/**
+ * Runs the agent loop on top of ConverseStream and pushes the progress to the caller as server-sent events.
+ * <p>
+ * Events sent: {@code text} for every text delta, {@code tool_start} and {@code tool_finish} around each
+ * tool call, {@code stop} with the stop reason of every turn and a final {@code done}.
+ * <p>
+ * When the caller goes away or the emitter times out the query is cancelled, no further model or tool call is
+ * started and the ones running are aborted.
+ */
+public class StreamingAgent implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingAgent.class);
+    private static final String MODE = "stream";
+    private final BedrockRuntimeAsyncClient bedrockAsyncClient;
+    private final ConverseRequestFactory requestFactory;
+    private final ToolTurnExecutor toolTurnExecutor;
+    private final AgentMetrics agentMetrics;
+    private final Duration streamTimeout;
+    private final ExecutorService executor;
+
+    public StreamingAgent(BedrockRuntimeAsyncClient bedrockAsyncClient, ConverseRequestFactory requestFactory,
+                          ToolTurnExecutor toolTurnExecutor, AgentMetrics agentMetrics, Duration streamTimeout) {
+        this.bedrockAsyncClient = bedrockAsyncClient;
+        this.requestFactory = requestFactory;
+        this.toolTurnExecutor = toolTurnExecutor;
+        this.agentMetrics = agentMetrics;
+        this.streamTimeout = streamTimeout;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Start the agent loop in the background and return the emitter it reports to.
+     *
+     * @param messages          The conversation so far, every turn is appended to it
+     * @param toolConfiguration The tools available to the model
+     * @param budget            The turns, tokens and time the query may spend
+     * @param route             Picks the model of every turn
+     * @param onComplete        Called with the conversation once the model has answered
+     * @return The emitter to hand back to Spring MVC
+     */
+    public SseEmitter stream(List<Message> messages, ToolConfiguration toolConfiguration, QueryBudget budget,
+                             ModelRouter.Route route, Consumer<List<Message>> onComplete) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        StreamingQuery query = new StreamingQuery(emitter);
+        emitter.onTimeout(query::cancel);
+        emitter.onError(e -> query.cancel());
+        // Also called once the query has completed, there is nothing left to cancel then
+        emitter.onCompletion(query::cancel);
+        executor.execute(() -> run(messages, toolConfiguration, budget.start(), route, query, onComplete));
+        return emitter;
+    }
+
+    private void run(List<Message> messages, ToolConfiguration toolConfiguration, QueryBudget.Tracker tracker,
+                     ModelRouter.Route route, StreamingQuery query, Consumer<List<Message>> onComplete) {
+        query.worker = Thread.currentThread();
+        Timer.Sample querySample = agentMetrics.start();
+        int turns = 0;
+        String stop = AgentMetrics.TURN_LIMIT;
+        try {
+            for (int turn = 0; turn < tracker.budget().maxTurns(); turn++) {
+                Timer.Sample turnSample = agentMetrics.start();
+                query.checkCancelled();
+                StreamedTurn streamedTurn = streamTurn(messages, toolConfiguration, tracker, route, query);
+                turns++;
+                messages.add(streamedTurn.message());
+                query.send("stop", Map.of("turn", turn, "stopReason", String.valueOf(streamedTurn.stopReason())));
+
+                if (streamedTurn.stopReason() != StopReason.TOOL_USE) {
+                    agentMetrics.recordTurn(turnSample, MODE, streamedTurn.stopReason());
+                    stop = String.valueOf(streamedTurn.stopReason());
+                    break;
+                }
+
+                List<ToolUseBlock> toolUseBlocks = streamedTurn.message().content().stream()
+                        .map(ContentBlock::toolUse)
+                        .filter(Objects::nonNull)
+                        .toList();
+                query.checkCancelled();
+                List<ToolResultBlock> toolResultBlocks = toolTurnExecutor.execute(toolUseBlocks);
+                for (int i = 0; i < toolResultBlocks.size(); i++) {
+                    query.send("tool_finish", Map.of(
+                            "toolUseId", toolResultBlocks.get(i).toolUseId(),
+                            "name", toolUseBlocks.get(i).name(),
+                            "status", String.valueOf(toolResultBlocks.get(i).status())));
+                }
+                messages.add(AgentTurns.toolResultMessage(toolResultBlocks));
+                agentMetrics.recordTurn(turnSample, MODE, streamedTurn.stopReason());
+                route.afterToolTurn(toolUseBlocks, toolResultBlocks);
+
+                String exhausted = tracker.exhausted();
+                if (exhausted != null) {
+                    query.send("stop", Map.of("turn", turn, "stopReason", exhausted));
+                    stop = exhausted;
+                    break;
+                }
+            }
+            onComplete.accept(messages);
+            query.send("done", Map.of());
+            query.finished = true;
+            query.emitter.complete();
+        } catch (Exception e) {
+            query.finished = true;
+            if (query.cancelled) {
+                // The emitter is already done, there is nobody left to report the error to
+                stop = AgentMetrics.CANCELLED;
+                logger.debug("Streaming query cancelled, the caller went away or the stream timed out", e);
+            } else {
+                stop = AgentMetrics.ERROR;
+                logger.error("Streaming query failed", e);
+                query.emitter.completeWithError(e);
+            }
+        } finally {
+            agentMetrics.recordQuery(querySample, MODE, turns, stop);
+        }
+    }
+
+    private StreamedTurn streamTurn(List<Message> messages, ToolConfiguration toolConfiguration,
+                                    QueryBudget.Tracker tracker, ModelRouter.Route route, StreamingQuery query) {
+        TurnAccumulator accumulator = new TurnAccumulator();
+
+        ConverseStreamResponseHandler handler = ConverseStreamResponseHandler.builder()
+                .subscriber(ConverseStreamResponseHandler.Visitor.builder()
+                        .onContentBlockStart(event -> accumulator.start(event, query))
+                        .onContentBlockDelta(event -> accumulator.delta(event, query))
+                        .onMessageStop(event -> accumulator.stopReason = event.stopReason())
+                        .onMetadata(event -> accumulator.metadata = event)
+                        .build())
+                .build();
+
+        String modelId = route.model();
+        Timer.Sample sample = agentMetrics.start();
+        long start = System.nanoTime();
+        try {
+            CompletableFuture<Void> call = bedrockAsyncClient.converseStream(
+                    requestFactory.converseStreamRequest(modelId, messages, toolConfiguration, tracker), handler);
+            query.call = call;
+            if (query.cancelled) {
+                call.cancel(false);
+            }
+            call.join();
+        } catch (RuntimeException e) {
+            route.recordCall(modelId, System.nanoTime() - start, e);
+            throw e;
+        }
+        route.recordCall(modelId, System.nanoTime() - start, null);
+        ConverseStreamMetadataEvent metadata = accumulator.metadata;
+        tracker.record(metadata != null ? metadata.usage() : null);
+        agentMetrics.recordBedrockCall(sample, "converse_stream", modelId,
+                metadata != null ? metadata.usage() : null,
+                metadata != null && metadata.metrics() != null ? metadata.metrics().latencyMs() : null);
+        return new StreamedTurn(accumulator.toMessage(), accumulator.stopReason);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private record StreamedTurn(Message message, StopReason stopReason) {
+    }
+
+    /**
+     * The emitter of one query and what to cancel when its caller goes away.
+     */
+    private static final class StreamingQuery {
+        private final SseEmitter emitter;
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private volatile Thread worker;
+        private volatile CompletableFuture<Void> call;
+
+        StreamingQuery(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void send(String name, Object data) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(name)
+                        .data(data, data instanceof String ? MediaType.TEXT_PLAIN : MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                // The caller went away, abort the stream
+                cancelled = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException("Streaming query cancelled");
+            }
+        }
+
+        void cancel() {
+            if (finished || cancelled) {
+                return;
+            }
+            cancelled = true;
+            Thread thread = worker;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            CompletableFuture<Void> currentCall = call;
+            if (currentCall != null) {
+                currentCall.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the assistant message from the stream events, content blocks are keyed by their stream index.
+     */
+    private static class TurnAccumulator {
+        private final Map<Integer, StringBuilder> text = new TreeMap<>();
+        private final Map<Integer, ToolUseBlock.Builder> toolUses = new TreeMap<>();
+        private final Map<Integer, StringBuilder> toolInputs = new TreeMap<>();
+        private volatile StopReason stopReason;
+        private volatile ConverseStreamMetadataEvent metadata;
+
+        synchronized void start(ContentBlockStartEvent event, StreamingQuery query) {
+            if (event.start() != null && event.start().toolUse() != null) {
+                String toolUseId = event.start().toolUse().toolUseId();
+                String name = event.start().toolUse().name();
+                toolUses.put(event.contentBlockIndex(), ToolUseBlock.builder().toolUseId(toolUseId).name(name));
+                toolInputs.put(event.contentBlockIndex(), new StringBuilder());
+                query.send("tool_start", Map.of("toolUseId", toolUseId, "name", name));
+            }
+        }
+
+        synchronized void delta(ContentBlockDeltaEvent event, StreamingQuery query) {
+            if (event.delta().text() != null) {
+                text.computeIfAbsent(event.contentBlockIndex(), index -> new StringBuilder()).append(event.delta().text());
+                query.send("text", event.delta().text());
+            } else if (event.delta().toolUse() != null) {
+                toolInputs.get(event.contentBlockIndex()).append(event.delta().toolUse().input());
+            }
+        }
+
+        synchronized Message toMessage() {
+            Map<Integer, ContentBlock> blocks = new TreeMap<>();
+            text.forEach((index, builder) -> blocks.put(index, ContentBlock.fromText(builder.toString())));
+            toolUses.forEach((index, builder) -> blocks.put(index, ContentBlock.fromToolUse(
+                    builder.input(parseInput(toolInputs.get(index).toString())).build())));
+            return Message.builder()
+                    .role(ConversationRole.ASSISTANT)
+                    .content(new ArrayList<>(blocks.values()))
+                    .build();
+        }
+
+        private static Document parseInput(String json) {
+            try {
+                return DocumentUtils.fromJson(json.isEmpty() ? "{}" : json);
+            } catch (UncheckedIOException e) {
+                throw new IllegalStateException("Model returned invalid tool input: " + json, e);
+            }
+        }
+    }
+}
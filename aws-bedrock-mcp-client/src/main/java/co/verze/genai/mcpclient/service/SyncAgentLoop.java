@@ -0,0 +1,121 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.StopReason;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+/**
+ * Agent loop that runs on the calling thread using the blocking Bedrock client.
+ */
+public class SyncAgentLoop implements AgentLoop {
+    private static final Logger logger = LoggerFactory.getLogger(SyncAgentLoop.class);
+    private static final String MODE = "sync";
+    private final BedrockRuntimeClient bedrockClient;
+    private final ConverseRequestFactory requestFactory;
+    private final ToolTurnExecutor toolTurnExecutor;
+    private final AgentMetrics agentMetrics;
+
+    public SyncAgentLoop(BedrockRuntimeClient bedrockClient, ConverseRequestFactory requestFactory,
+                         ToolTurnExecutor toolTurnExecutor, AgentMetrics agentMetrics) {
+        this.bedrockClient = bedrockClient;
+        this.requestFactory = requestFactory;
+        this.toolTurnExecutor = toolTurnExecutor;
+        this.agentMetrics = agentMetrics;
+    }
+
+    @Override
+    public CompletableFuture<String> run(List<Message> messages, ToolConfiguration toolConfiguration,
+                                         QueryBudget budget, ModelRouter.Route route) {
+        Timer.Sample querySample = agentMetrics.start();
+        QueryBudget.Tracker tracker = budget.start();
+        int turns = 0;
+        String stop = AgentMetrics.TURN_LIMIT;
+        try {
+            logger.debug("Making initial bedrock request with messages '{}' and tool config '{}'", messages, toolConfiguration);
+            Timer.Sample turnSample = agentMetrics.start();
+            ConverseResponse currentResponse = makeBedrockRequest(messages, toolConfiguration, tracker, route);
+            logger.debug("Initial bedrock response: {}", currentResponse);
+
+            List<String> finalText = new ArrayList<>();
+            for (int turnCount = 0; turnCount < budget.maxTurns(); turnCount++) {
+                turns++;
+                logger.info("Processing response with stop reason: {}", currentResponse.stopReason());
+                if (currentResponse.stopReason() != StopReason.TOOL_USE) {
+                    messages.add(currentResponse.output().message());
+                    AgentTurns.recordStop(currentResponse, finalText);
+                    agentMetrics.recordTurn(turnSample, MODE, currentResponse.stopReason());
+                    stop = String.valueOf(currentResponse.stopReason());
+                    break;
+                }
+
+                // The assistant turn is kept whole, text and toolUse blocks alike
+                Message assistantMessage = currentResponse.output().message();
+                messages.add(assistantMessage);
+                List<ToolUseBlock> toolUseBlocks = AgentTurns.collectToolUses(assistantMessage, finalText);
+
+                // Run every tool call of the turn in parallel and answer them in a single user message
+                List<ToolResultBlock> toolResultBlocks = toolTurnExecutor.execute(toolUseBlocks);
+                messages.add(AgentTurns.toolResultMessage(toolResultBlocks));
+                toolResultBlocks.forEach(toolResultBlock -> finalText.add(toolResultBlock.toString()));
+                agentMetrics.recordTurn(turnSample, MODE, currentResponse.stopReason());
+                route.afterToolTurn(toolUseBlocks, toolResultBlocks);
+
+                String exhausted = tracker.exhausted();
+                if (exhausted != null) {
+                    AgentTurns.recordBudgetStop(exhausted, finalText);
+                    stop = exhausted;
+                    break;
+                }
+                // Every model response counts, so the last turn allowed is never sent only to be thrown away
+                if (turns >= budget.maxTurns()) {
+                    break;
+                }
+
+                logger.debug("Sending toolUse response to bedrock: {}", messages);
+                turnSample = agentMetrics.start();
+                currentResponse = makeBedrockRequest(messages, toolConfiguration, tracker, route);
+                logger.debug("Received response after toolUse: {}", currentResponse);
+            }
+
+            return CompletableFuture.completedFuture(String.join("\n\n", finalText));
+        } catch (RuntimeException e) {
+            // An interrupt stops the query, e.g. when the caller of a batch went away
+            stop = Thread.currentThread().isInterrupted() ? AgentMetrics.CANCELLED : AgentMetrics.ERROR;
+            throw e;
+        } finally {
+            agentMetrics.recordQuery(querySample, MODE, turns, stop);
+        }
+    }
+
+    private ConverseResponse makeBedrockRequest(List<Message> messages, ToolConfiguration toolConfiguration,
+                                                QueryBudget.Tracker tracker, ModelRouter.Route route) {
+        String modelId = route.model();
+        Timer.Sample sample = agentMetrics.start();
+        long start = System.nanoTime();
+        ConverseResponse response;
+        try {
+            response = bedrockClient.converse(
+                    requestFactory.converseRequest(modelId, messages, toolConfiguration, tracker));
+        } catch (RuntimeException e) {
+            route.recordCall(modelId, System.nanoTime() - start, e);
+            throw e;
+        }
+        route.recordCall(modelId, System.nanoTime() - start, null);
+        tracker.record(response.usage());
+        agentMetrics.recordBedrockCall(sample, "converse", modelId, response.usage(),
+                response.metrics() != null ? response.metrics().latencyMs() : null);
+        return response;
+    }
+}
@@ -0,0 +1,139 @@
+package co.verze.genai.mcpclient.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.verze.genai.mcpclient.utils.DocumentUtils;
+import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
+import software.amazon.awssdk.core.document.Document;
+import software.amazon.awssdk.services.bedrockruntime.model.Tool;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolInputSchema;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolSpecification;
+
+/**
+ * Caches the MCP server tool list together with the Bedrock tool configuration built from it.
+ * The snapshot is only rebuilt after the server reports a tools/list_changed notification
+ * or the client reconnects, every other lookup is served from memory.
+ */
+public class ToolCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(ToolCatalog.class);
+    private final Supplier<ListToolsResult> toolLoader;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Counts refreshes and invalidations, a load that overlapped one of them is older than the catalog
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param toolLoader Fetches the current tool list from the MCP server on a cache miss
+     */
+    public ToolCatalog(Supplier<ListToolsResult> toolLoader) {
+        this.toolLoader = toolLoader;
+    }
+
+    /**
+     * Get the tools as reported by the MCP server.
+     *
+     * @return The cached tool list
+     */
+    public ListToolsResult getTools() {
+        return current().tools();
+    }
+
+    /**
+     * Get the Bedrock tool configuration for the current tool list.
+     *
+     * @return The cached tool configuration
+     */
+    public ToolConfiguration getToolConfiguration() {
+        return current().toolConfiguration();
+    }
+
+    /**
+     * Replace the snapshot with a tool list pushed by the server, e.g. from a tools/list_changed notification.
+     *
+     * @param tools The new tool list
+     */
+    public void refresh(List<io.modelcontextprotocol.spec.McpSchema.Tool> tools) {
+        logger.info("Tool list changed, rebuilding tool catalog with {} tools", tools.size());
+        changes.incrementAndGet();
+        snapshot = build(new ListToolsResult(tools, null));
+    }
+
+    /**
+     * Drop the snapshot so that the next lookup reloads it from the server, e.g. after a reconnect.
+     */
+    public void invalidate() {
+        logger.info("Invalidating tool catalog version {}", version.get());
+        changes.incrementAndGet();
+        snapshot = null;
+    }
+
+    public Stats getStats() {
+        return new Stats(version.get(), hits.get(), misses.get());
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hits.incrementAndGet();
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot != null) {
+                hits.incrementAndGet();
+                return snapshot;
+            }
+            misses.incrementAndGet();
+            long seen = changes.get();
+            Snapshot loaded = build(toolLoader.get());
+            // Refreshes don't wait for the lock, the notifying thread may be needed to finish the load
+            if (changes.get() == seen) {
+                snapshot = loaded;
+                return loaded;
+            }
+            Snapshot newer = snapshot;
+            return newer != null ? newer : loaded;
+        }
+    }
+
+    private Snapshot build(ListToolsResult listToolsResult) {
+        Snapshot built = new Snapshot(version.incrementAndGet(), listToolsResult, convertToToolConfiguration(listToolsResult));
+        logger.info("Built tool catalog version {} with {} tools", built.version(), listToolsResult.tools().size());
+        return built;
+    }
+
+    private static ToolConfiguration convertToToolConfiguration(ListToolsResult listToolsResult) {
+        return ToolConfiguration.builder().tools(listToolsResult.tools().stream()
+                .map(tool -> {
+                    // Stream the schema straight into a document, no JSON string or JsonNode tree in between
+                    Document inputSchemaDocument = DocumentUtils.fromValue(tool.inputSchema());
+
+                    return Tool.builder()
+                            .toolSpec(ToolSpecification.builder()
+                                    .name(tool.name())
+                                    .description(tool.description())
+                                    .inputSchema(ToolInputSchema.builder()
+                                            .json(inputSchemaDocument)
+                                            .build())
+                                    .build())
+                            .build();
+                }).toList()
+        ).build();
+    }
+
+    private record Snapshot(long version, ListToolsResult tools, ToolConfiguration toolConfiguration) {
+    }
+
+    /**
+     * Catalog version and lookup counters.
+     */
+    public record Stats(long version, long hits, long misses) {
+    }
+}
@@ -0,0 +1,15 @@
+package co.verze.genai.mcpclient.service;
+
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * Calls MCP tools, either blocking or non-blocking.
+ */
+public interface ToolClient {
+
+    CallToolResult callTool(CallToolRequest request);
+
+    Mono<CallToolResult> callToolAsync(CallToolRequest request);
+}
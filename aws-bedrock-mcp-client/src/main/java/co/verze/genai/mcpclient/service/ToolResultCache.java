@@ -0,0 +1,242 @@
+package co.verze.genai.mcpclient.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches tool results in front of another {@link ToolClient}.
+ * <p>
+ * Entries are keyed by tool name plus the canonicalized arguments, so argument order and number
+ * formatting do not matter. Each tool has its own time to live, tools without a policy are never
+ * cached and neither are error results. The cache holds at most {@code maxEntries} results and
+ * evicts the least recently used one when full.
+ * <p>
+ * A cacheable call that is already in flight isn't made again, the identical call waits for its result
+ * instead, so concurrent queries asking for the same page or location only cost one tool call.
+ */
+public class ToolResultCache implements ToolClient {
+    private static final Logger logger = LoggerFactory.getLogger(ToolResultCache.class);
+    /** Time to live for results that never expire, e.g. pure functions */
+    public static final Duration FOREVER = Duration.ofNanos(Long.MAX_VALUE);
+    private final ToolClient delegate;
+    private final Map<String, Duration> ttlByTool;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, CompletableFuture<CallToolResult>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param delegate   The client doing the actual tool calls
+     * @param ttlByTool  Time to live per tool name, use {@link #FOREVER} for results that never change
+     *                   and {@link Duration#ZERO} to disable caching for a tool
+     * @param maxEntries Upper bound on the number of cached results
+     */
+    public ToolResultCache(ToolClient delegate, Map<String, Duration> ttlByTool, int maxEntries) {
+        this.delegate = delegate;
+        this.ttlByTool = ttlByTool.entrySet().stream()
+                .filter(policy -> !policy.getValue().isZero())
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > ToolResultCache.this.maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+        logger.info("Created tool result cache with max {} entries and policies {}", maxEntries, ttlByTool);
+    }
+
+    @Override
+    public CallToolResult callTool(CallToolRequest request) {
+        Duration ttl = ttlByTool.get(request.name());
+        if (ttl == null) {
+            return delegate.callTool(request);
+        }
+
+        String key = key(request);
+        CallToolResult cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<CallToolResult> call = new CompletableFuture<>();
+        CompletableFuture<CallToolResult> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running);
+        }
+        try {
+            CallToolResult result = delegate.callTool(request);
+            store(key, result, ttl);
+            call.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    @Override
+    public Mono<CallToolResult> callToolAsync(CallToolRequest request) {
+        Duration ttl = ttlByTool.get(request.name());
+        if (ttl == null) {
+            return delegate.callToolAsync(request);
+        }
+
+        return Mono.defer(() -> {
+            String key = key(request);
+            CallToolResult cached = lookup(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            CompletableFuture<CallToolResult> call = new CompletableFuture<>();
+            CompletableFuture<CallToolResult> running = inFlight.putIfAbsent(key, call);
+            if (running != null) {
+                coalesced.incrementAndGet();
+                // A waiter timing out must not cancel the call for the others
+                return Mono.fromFuture(running, true);
+            }
+            return delegate.callToolAsync(request)
+                    .doOnNext(result -> {
+                        store(key, result, ttl);
+                        call.complete(result);
+                    })
+                    .doOnError(call::completeExceptionally)
+                    .doFinally(signal -> {
+                        inFlight.remove(key, call);
+                        call.completeExceptionally(new CancellationException("Tool call " + key + " was cancelled"));
+                    });
+        });
+    }
+
+    public Stats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        double hitRate = hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount);
+        return new Stats(size, maxEntries, hitCount, missCount, hitRate, evictions.get(), expirations.get(),
+                coalesced.get());
+    }
+
+    private static CallToolResult await(CompletableFuture<CallToolResult> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an identical tool call", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private CallToolResult lookup(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.result();
+            }
+            if (entry != null) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void store(String key, CallToolResult result, Duration ttl) {
+        // Errors may well be transient, they are never cached
+        if (Boolean.TRUE.equals(result.isError())) {
+            return;
+        }
+        // Compared as a difference with the current time, so FOREVER may overflow safely
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        synchronized (entries) {
+            entries.put(key, new Entry(result, expiresAt));
+        }
+    }
+
+    /**
+     * Build the cache key of a tool call, map keys are sorted and numbers normalized so that
+     * equivalent arguments always produce the same key.
+     */
+    static String key(CallToolRequest request) {
+        StringBuilder key = new StringBuilder(request.name()).append(':');
+        appendCanonical(key, request.arguments());
+        return key.toString();
+    }
+
+    private static void appendCanonical(StringBuilder key, Object value) {
+        if (value instanceof Map<?, ?> map) {
+            key.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : new TreeMap<>(map).entrySet()) {
+                if (!first) {
+                    key.append(',');
+                }
+                first = false;
+                key.append('"').append(entry.getKey()).append("\":");
+                appendCanonical(key, entry.getValue());
+            }
+            key.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            key.append('[');
+            boolean first = true;
+            for (Object element : collection) {
+                if (!first) {
+                    key.append(',');
+                }
+                first = false;
+                appendCanonical(key, element);
+            }
+            key.append(']');
+        } else if (value instanceof Number number && Double.isFinite(number.doubleValue())) {
+            key.append(new BigDecimal(number.toString()).stripTrailingZeros().toPlainString());
+        } else if (value instanceof String string) {
+            key.append('"').append(string.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        } else {
+            key.append(value);
+        }
+    }
+
+    private record Entry(CallToolResult result, long expiresAt) {
+    }
+
+    /**
+     * Cache size, hit rate and eviction counters, {@code coalesced} counts the calls that waited for an identical
+     * call in flight.
+     */
+    public record Stats(int size, int maxEntries, long hits, long misses, double hitRate,
+                        long evictions, long expirations, long coalesced) {
+    }
+}
@@ -0,0 +1,179 @@
+package co.verze.genai.mcpclient.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.verze.genai.mcpclient.utils.DocumentUtils;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultStatus;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+/**
+ * Executes all the toolUse blocks of a single model turn concurrently.
+ * At most {@code maxConcurrency} calls of a turn run at once and every tool call has its own timeout, counted from
+ * when the call starts, a timed out or failing call is reported back to the model as an error result.
+ * The non-blocking variant applies the same bounds without holding a thread per call.
+ */
+public class ToolTurnExecutor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ToolTurnExecutor.class);
+    private final ToolClient toolClient;
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final Duration toolTimeout;
+    private final AgentMetrics agentMetrics;
+
+    public ToolTurnExecutor(ToolClient toolClient, int maxConcurrency, Duration toolTimeout, AgentMetrics agentMetrics) {
+        this.toolClient = toolClient;
+        this.agentMetrics = agentMetrics;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.maxConcurrency = maxConcurrency;
+        this.toolTimeout = toolTimeout;
+    }
+
+    /**
+     * Run the given tool calls in parallel and collect their results.
+     *
+     * @param toolUseBlocks The toolUse blocks requested by the model in one turn
+     * @return The tool results in the same order as the requests
+     */
+    public List<ToolResultBlock> execute(List<ToolUseBlock> toolUseBlocks) {
+        // The bound applies to this turn, like the non-blocking variant, other queries don't wait for it
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<ToolResultBlock>> futures = new ArrayList<>(toolUseBlocks.size());
+        for (ToolUseBlock toolUseBlock : toolUseBlocks) {
+            futures.add(executor.submit(() -> callTool(toolUseBlock, permits)));
+        }
+
+        // Every call is bounded by its own timeout, so waiting for them all is bounded too
+        List<ToolResultBlock> results = new ArrayList<>(toolUseBlocks.size());
+        for (int i = 0; i < futures.size(); i++) {
+            ToolUseBlock toolUseBlock = toolUseBlocks.get(i);
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                logger.error("Tool {} with use ID {} failed", toolUseBlock.name(), toolUseBlock.toolUseId(), e.getCause());
+                results.add(errorResult(toolUseBlock, "Error: " + e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for tool results", e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Non-blocking variant of {@link #execute(List)}.
+     *
+     * @param toolUseBlocks The toolUse blocks requested by the model in one turn
+     * @return The tool results in the same order as the requests
+     */
+    public CompletableFuture<List<ToolResultBlock>> executeAsync(List<ToolUseBlock> toolUseBlocks) {
+        return Flux.fromIterable(toolUseBlocks)
+                .flatMapSequential(this::callToolAsync, maxConcurrency)
+                .collectList()
+                .toFuture();
+    }
+
+    private Mono<ToolResultBlock> callToolAsync(ToolUseBlock toolUseRequest) {
+        String toolUseId = toolUseRequest.toolUseId();
+        String toolName = toolUseRequest.name();
+        Map<String, Object> toolArgs = DocumentUtils.toMap(toolUseRequest.input());
+
+        logger.info("Calling tool {} with args {} with use ID {}", toolName, toolArgs, toolUseId);
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return toolClient.callToolAsync(new CallToolRequest(toolName, toolArgs))
+                            .timeout(toolTimeout)
+                            .doOnSuccess(result -> agentMetrics.recordToolCall(toolName, outcome(result), System.nanoTime() - start))
+                            .doOnError(e -> agentMetrics.recordToolCall(toolName,
+                                    e instanceof TimeoutException ? "timeout" : "exception", System.nanoTime() - start));
+                })
+                .doOnNext(result -> logger.debug("Tool result: {}", result))
+                .map(result -> toToolResultBlock(toolUseId, result))
+                .onErrorResume(e -> {
+                    logger.error("Tool {} with use ID {} failed", toolName, toolUseId, e);
+                    return Mono.just(errorResult(toolUseRequest, "Error: " + e.getMessage()));
+                });
+    }
+
+    private ToolResultBlock callTool(ToolUseBlock toolUseRequest, Semaphore permits) throws Exception {
+        String toolUseId = toolUseRequest.toolUseId();
+        String toolName = toolUseRequest.name();
+        Map<String, Object> toolArgs = DocumentUtils.toMap(toolUseRequest.input());
+
+        permits.acquire();
+        // The timeout starts once the call runs, not while it waits for a permit
+        long start = System.nanoTime();
+        String outcome = "exception";
+        Future<CallToolResult> call = null;
+        try {
+            logger.info("Calling tool {} with args {} with use ID {}", toolName, toolArgs, toolUseId);
+            call = executor.submit(() -> toolClient.callTool(new CallToolRequest(toolName, toolArgs)));
+            CallToolResult result = call.get(toolTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            outcome = outcome(result);
+            logger.debug("Tool result: {}", result);
+            return toToolResultBlock(toolUseId, result);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            outcome = "timeout";
+            logger.warn("Tool {} with use ID {} timed out after {}", toolName, toolUseId, toolTimeout);
+            return errorResult(toolUseRequest, "Error: tool call timed out after " + toolTimeout.toMillis() + " ms");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (InterruptedException e) {
+            // The turn was abandoned
+            if (call != null) {
+                call.cancel(true);
+            }
+            throw e;
+        } finally {
+            agentMetrics.recordToolCall(toolName, outcome, System.nanoTime() - start);
+            permits.release();
+        }
+    }
+
+    private static String outcome(CallToolResult result) {
+        return result == null || Boolean.TRUE.equals(result.isError()) ? "error" : "success";
+    }
+
+    private static ToolResultBlock toToolResultBlock(String toolUseId, CallToolResult result) {
+        return ToolResultBlock.builder()
+                .toolUseId(toolUseId)
+                .status(!Boolean.TRUE.equals(result.isError()) ? ToolResultStatus.SUCCESS : ToolResultStatus.ERROR)
+                .content(result.content().stream().map(
+                        content -> ToolResultContentBlock.builder().text(content.toString()).build()).toList())
+                .build();
+    }
+
+    private static ToolResultBlock errorResult(ToolUseBlock toolUseBlock, String message) {
+        return ToolResultBlock.builder()
+                .toolUseId(toolUseBlock.toolUseId())
+                .status(ToolResultStatus.ERROR)
+                .content(ToolResultContentBlock.builder().text(message).build())
+                .build();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -1,23 +1,38 @@
 package co.verze.genai.mcpclient.utils;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import software.amazon.awssdk.core.SdkNumber;
 import software.amazon.awssdk.core.document.Document;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Conversions between JSON, Bedrock {@link Document}s and the plain maps the MCP clients send.
+ * Numbers are carried exactly, integers stay integral and decimals are never rounded through double.
+ */
 public class DocumentUtils {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     public static Document ConvertJsonNodeToDocument(JsonNode node) {
         if (node.isObject()) {
-            Map<String, Document> map = new HashMap<>();
+            Map<String, Document> map = LinkedHashMap.newLinkedHashMap(node.size());
             node.fields().forEachRemaining(entry -> {
                 map.put(entry.getKey(), ConvertJsonNodeToDocument(entry.getValue()));
             });
             return Document.fromMap(map);
         } else if (node.isArray()) {
-            List<Document> list = new ArrayList<>();
+            List<Document> list = new ArrayList<>(node.size());
             for (JsonNode element : node) {
                 list.add(ConvertJsonNodeToDocument(element));
             }
@@ -26,9 +41,13 @@ public class DocumentUtils {
             return Document.fromString(node.asText());
         } else if (node.isNumber()) {
             if (node.isInt()) {
-                return Document.fromNumber(node.asInt());
+                return Document.fromNumber(node.intValue());
+            } else if (node.isLong()) {
+                return Document.fromNumber(node.longValue());
+            } else if (node.isBigInteger()) {
+                return Document.fromNumber(node.bigIntegerValue());
             } else {
-                return Document.fromNumber(node.asDouble());
+                return Document.fromNumber(node.decimalValue());
             }
         } else if (node.isBoolean()) {
             return Document.fromBoolean(node.asBoolean());
@@ -38,4 +57,122 @@ public class DocumentUtils {
             return Document.fromString(node.toString());
         }
     }
+
+    /**
+     * Parse a JSON string straight into a Document, without building a JsonNode tree first.
+     */
+    public static Document fromJson(String json) {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            return readDocument(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid JSON: " + json, e);
+        }
+    }
+
+    /**
+     * Convert any Jackson serializable value, such as an MCP tool input schema, to a Document.
+     * The value is serialized into a token buffer and read back as a token stream.
+     */
+    public static Document fromValue(Object value) {
+        try (TokenBuffer buffer = new TokenBuffer(MAPPER, false)) {
+            MAPPER.writeValue(buffer, value);
+            try (JsonParser parser = buffer.asParser()) {
+                return readDocument(parser);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot convert " + value.getClass().getName() + " to a document", e);
+        }
+    }
+
+    /**
+     * Read the next JSON value of the parser as a Document.
+     * The parser is left on the last token of the value.
+     */
+    public static Document readDocument(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token == null) {
+            throw new IOException("Unexpected end of JSON input");
+        }
+        return switch (token) {
+            case START_OBJECT -> {
+                Map<String, Document> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    map.put(name, readDocument(parser));
+                }
+                yield Document.fromMap(map);
+            }
+            case START_ARRAY -> {
+                List<Document> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readDocument(parser));
+                }
+                yield Document.fromList(list);
+            }
+            case VALUE_STRING -> Document.fromString(parser.getText());
+            case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+                case INT -> Document.fromNumber(parser.getIntValue());
+                case LONG -> Document.fromNumber(parser.getLongValue());
+                default -> Document.fromNumber(parser.getBigIntegerValue());
+            };
+            case VALUE_NUMBER_FLOAT -> Document.fromNumber(parser.getDecimalValue());
+            case VALUE_TRUE -> Document.fromBoolean(true);
+            case VALUE_FALSE -> Document.fromBoolean(false);
+            case VALUE_NULL -> Document.fromNull();
+            case VALUE_EMBEDDED_OBJECT -> Document.fromString(String.valueOf(parser.getEmbeddedObject()));
+            default -> throw new IOException("Unexpected JSON token " + token);
+        };
+    }
+
+    /**
+     * Convert a Document map, such as a tool use input, to the argument map of an MCP tool call.
+     * Unlike {@link Document#unwrap()}, which turns numbers into strings, numbers come back as
+     * Integer, Long or BigInteger when integral and BigDecimal otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> toMap(Document document) {
+        if (document == null || !document.isMap()) {
+            return Map.of();
+        }
+        return (Map<String, Object>) toObject(document);
+    }
+
+    public static Object toObject(Document document) {
+        if (document.isMap()) {
+            Map<String, Document> documentMap = document.asMap();
+            Map<String, Object> map = LinkedHashMap.newLinkedHashMap(documentMap.size());
+            documentMap.forEach((key, value) -> map.put(key, toObject(value)));
+            return map;
+        } else if (document.isList()) {
+            List<Document> documentList = document.asList();
+            List<Object> list = new ArrayList<>(documentList.size());
+            for (Document element : documentList) {
+                list.add(toObject(element));
+            }
+            return list;
+        } else if (document.isNumber()) {
+            return toNumber(document.asNumber());
+        } else if (document.isString()) {
+            return document.asString();
+        } else if (document.isBoolean()) {
+            return document.asBoolean();
+        } else {
+            return null;
+        }
+    }
+
+    private static Number toNumber(SdkNumber number) {
+        String text = number.stringValue();
+        if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0) {
+            return new BigDecimal(text);
+        }
+        BigInteger integer = new BigInteger(text);
+        if (integer.bitLength() < Integer.SIZE) {
+            return integer.intValue();
+        } else if (integer.bitLength() < Long.SIZE) {
+            return integer.longValue();
+        }
+        return integer;
+    }
 }
@@ -0,0 +1,103 @@
+package co.verze.genai.mcpclient.service;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.document.Document;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConversationSessionStoreTest {
+
+    private final ConversationSessionStore store = new ConversationSessionStore(Duration.ofMinutes(30), 10, 8);
+
+    @Test
+    void testHistoryUnderCapIsKept() {
+        List<Message> messages = new ArrayList<>(exchange("q1", "a1"));
+        messages.addAll(toolExchange("q2", "a2"));
+
+        assertEquals(messages, store.bound(messages));
+    }
+
+    @Test
+    void testHistoryOverCapIsCutBackToHalf() {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            messages.addAll(exchange("q" + i, "a" + i));
+        }
+
+        List<Message> bounded = store.bound(messages);
+
+        assertEquals(messages.subList(6, 10), bounded);
+        assertEquals("q4", bounded.get(0).content().get(0).text());
+    }
+
+    @Test
+    void testFirstMessageStaysUntilCapIsReachedAgain() {
+        List<Message> history = new ArrayList<>();
+        List<String> firstQueries = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            history.addAll(exchange("q" + i, "a" + i));
+            history = new ArrayList<>(store.bound(history));
+            firstQueries.add(history.get(0).content().get(0).text());
+        }
+
+        assertEquals(List.of("q1", "q1", "q1", "q1", "q4", "q4", "q4", "q7"), firstQueries);
+    }
+
+    @Test
+    void testUnansweredExchangeIsDropped() {
+        // The turn limit stopped the second query after a tool call, before the model answered
+        List<Message> messages = new ArrayList<>(exchange("q1", "a1"));
+        messages.addAll(toolExchange("q2", "a2").subList(0, 3));
+
+        assertEquals(messages.subList(0, 2), store.bound(messages));
+    }
+
+    @Test
+    void testHistoryOverCapStartsWithUserQuery() {
+        // Cutting back to half lands on the tool result of the second exchange
+        List<Message> messages = new ArrayList<>(toolExchange("q1", "a1"));
+        messages.addAll(toolExchange("q2", "a2"));
+        messages.addAll(exchange("q3", "a3"));
+
+        List<Message> bounded = store.bound(messages);
+
+        assertEquals(messages.subList(8, 10), bounded);
+        assertEquals(ConversationRole.USER, bounded.get(0).role());
+        assertEquals("q3", bounded.get(0).content().get(0).text());
+    }
+
+    private static List<Message> exchange(String query, String answer) {
+        return List.of(
+                Message.builder().role(ConversationRole.USER).content(ContentBlock.fromText(query)).build(),
+                Message.builder().role(ConversationRole.ASSISTANT).content(ContentBlock.fromText(answer)).build());
+    }
+
+    private static List<Message> toolExchange(String query, String answer) {
+        return List.of(
+                Message.builder().role(ConversationRole.USER).content(ContentBlock.fromText(query)).build(),
+                Message.builder().role(ConversationRole.ASSISTANT)
+                        .content(ContentBlock.fromToolUse(ToolUseBlock.builder()
+                                .toolUseId(query)
+                                .name("calculator")
+                                .input(Document.mapBuilder().putString("operation", "add").build())
+                                .build()))
+                        .build(),
+                Message.builder().role(ConversationRole.USER)
+                        .content(ContentBlock.fromToolResult(ToolResultBlock.builder()
+                                .toolUseId(query)
+                                .content(ToolResultContentBlock.fromText("3"))
+                                .build()))
+                        .build(),
+                Message.builder().role(ConversationRole.ASSISTANT).content(ContentBlock.fromText(answer)).build());
+    }
+}
@@ -0,0 +1,85 @@
+package co.verze.genai.mcpclient.service;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.document.Document;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryCompactorTest {
+
+    @Test
+    void testLargeToolResultIsClippedToHeadAndTail() {
+        HistoryCompactor compactor = new HistoryCompactor(new HistoryCompactor.Policy(100, 0, 0, 0));
+        String page = "head" + "x".repeat(1000) + "tail";
+
+        List<Message> compacted = compactor.compact(exchange("summarise the page", "1", page, "a summary"));
+
+        String clipped = toolResultText(compacted.get(2));
+        assertTrue(clipped.startsWith("head"));
+        assertTrue(clipped.endsWith("tail"));
+        assertTrue(clipped.length() < page.length());
+    }
+
+    @Test
+    void testOnlyLatestToolTurnsAreKept() {
+        HistoryCompactor compactor = new HistoryCompactor(new HistoryCompactor.Policy(0, 1, 0, 0));
+        List<Message> messages = new ArrayList<>(exchange("first", "1", "old result", "first answer"));
+        messages.addAll(exchange("second", "2", "new result", "second answer"));
+
+        List<Message> compacted = compactor.compact(messages);
+
+        assertEquals(HistoryCompactor.STALE_TOOL_RESULT, toolResultText(compacted.get(2)));
+        assertEquals("1", compacted.get(2).content().get(0).toolResult().toolUseId());
+        assertEquals("new result", toolResultText(compacted.get(6)));
+        assertEquals("old result", toolResultText(messages.get(2)));
+    }
+
+    @Test
+    void testEarlierExchangesAreSummarisedToFitTarget() {
+        HistoryCompactor compactor = new HistoryCompactor(new HistoryCompactor.Policy(0, 0, 100, 20));
+        List<Message> messages = new ArrayList<>(exchange("first", "1", "x".repeat(1000), "first answer"));
+        messages.addAll(exchange("second", "2", "small result", "second answer"));
+
+        List<Message> compacted = compactor.compact(messages);
+
+        assertEquals(6, compacted.size());
+        assertEquals(ConversationRole.USER, compacted.get(0).role());
+        assertEquals("first", compacted.get(0).content().get(0).text());
+        assertEquals(ConversationRole.ASSISTANT, compacted.get(1).role());
+        assertTrue(compacted.get(1).content().get(0).text().contains("first answer"));
+        assertEquals(messages.subList(4, 8), compacted.subList(2, 6));
+        assertTrue(HistoryCompactor.estimateTokens(compacted) <= 100);
+    }
+
+    private static List<Message> exchange(String query, String toolUseId, String toolResult, String answer) {
+        return List.of(
+                Message.builder().role(ConversationRole.USER).content(ContentBlock.fromText(query)).build(),
+                Message.builder().role(ConversationRole.ASSISTANT)
+                        .content(ContentBlock.fromToolUse(ToolUseBlock.builder()
+                                .toolUseId(toolUseId)
+                                .name("get_web_page")
+                                .input(Document.mapBuilder().putString("url", "https://example.com").build())
+                                .build()))
+                        .build(),
+                Message.builder().role(ConversationRole.USER)
+                        .content(ContentBlock.fromToolResult(ToolResultBlock.builder()
+                                .toolUseId(toolUseId)
+                                .content(ToolResultContentBlock.fromText(toolResult))
+                                .build()))
+                        .build(),
+                Message.builder().role(ConversationRole.ASSISTANT).content(ContentBlock.fromText(answer)).build());
+    }
+
+    private static String toolResultText(Message message) {
+        return message.content().get(0).toolResult().content().get(0).text();
+    }
+}
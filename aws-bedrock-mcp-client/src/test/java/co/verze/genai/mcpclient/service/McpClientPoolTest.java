@@ -0,0 +1,83 @@
+package co.verze.genai.mcpclient.service;
+
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class McpClientPoolTest {
+
+    private static final CallToolRequest REQUEST = new CallToolRequest("calculator", Map.of("operation", "add", "a", 1, "b", 2));
+    private static final CallToolResult RESULT = new CallToolResult(List.of(new TextContent("3")), false);
+
+    private final AtomicInteger launches = new AtomicInteger();
+
+    @Test
+    void testFailedLaunchIsRetried() throws InterruptedException {
+        try (McpClientPool pool = new McpClientPool(() -> {
+            if (launches.incrementAndGet() == 1) {
+                throw new IllegalStateException("Server failed to start");
+            }
+            return workingClient();
+        }, 1, 1, 10)) {
+            pool.ready().join();
+            assertFalse(pool.isAvailable());
+            assertThrows(IllegalStateException.class, () -> pool.callTool(REQUEST));
+
+            awaitTrue(pool::isAvailable);
+            assertSame(RESULT, pool.callTool(REQUEST));
+            assertSame(RESULT, pool.callToolAsync(REQUEST).block());
+            assertEquals(2, launches.get());
+        }
+    }
+
+    @Test
+    void testFailedReplacementIsRetried() throws InterruptedException {
+        try (McpClientPool pool = new McpClientPool(() -> switch (launches.incrementAndGet()) {
+            case 1 -> crashedClient();
+            case 2 -> throw new IllegalStateException("Server failed to start");
+            default -> workingClient();
+        }, 1, 1, 10)) {
+            pool.ready().join();
+            assertThrows(IllegalStateException.class, () -> pool.callTool(REQUEST));
+
+            awaitTrue(() -> launches.get() == 3 && pool.isAvailable());
+            assertSame(RESULT, pool.callTool(REQUEST));
+            assertEquals(3, pool.getStats().get(0).id());
+        }
+    }
+
+    private static McpAsyncClient workingClient() {
+        McpAsyncClient client = mock(McpAsyncClient.class);
+        when(client.callTool(any())).thenReturn(Mono.just(RESULT));
+        when(client.ping()).thenReturn(Mono.just(Map.of()));
+        return client;
+    }
+
+    private static McpAsyncClient crashedClient() {
+        McpAsyncClient client = mock(McpAsyncClient.class);
+        when(client.callTool(any())).thenReturn(Mono.error(new IllegalStateException("Transport closed")));
+        when(client.ping()).thenReturn(Mono.error(new IllegalStateException("Transport closed")));
+        return client;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the pool to recover");
+            Thread.sleep(50);
+        }
+    }
+}
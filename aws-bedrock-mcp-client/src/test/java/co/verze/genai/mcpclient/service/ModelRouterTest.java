@@ -0,0 +1,122 @@
+package co.verze.genai.mcpclient.service;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolResultStatus;
+import software.amazon.awssdk.services.bedrockruntime.model.ToolUseBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ValidationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelRouterTest {
+
+    private static final RuntimeException THROTTLED = ThrottlingException.builder().statusCode(429).build();
+
+    private final ModelRouter router = new ModelRouter(List.of("small-1", "small-2"), List.of("large-1"),
+            Set.of("calculator"), 100);
+
+    @Test
+    void testShortQueryStartsOnSmallTier() {
+        assertEquals(ModelRouter.Tier.SMALL, router.route("What is 2 + 2?", null).tier());
+        assertEquals(ModelRouter.Tier.LARGE, router.route("Summarise https://example.com", null).tier());
+        assertEquals(ModelRouter.Tier.LARGE, router.route("x".repeat(101), null).tier());
+        assertEquals(ModelRouter.Tier.LARGE,
+                new ModelRouter(List.of(), List.of("large-1"), Set.of(), 100).route("Hi", null).tier());
+    }
+
+    @Test
+    void testOverride() {
+        assertEquals(ModelRouter.Tier.LARGE, router.route("Hi", "large").tier());
+        assertEquals("small-2", router.route("Summarise this", "small-2").model());
+        assertThrows(IllegalArgumentException.class, () -> router.route("Hi", "medium"));
+    }
+
+    @Test
+    void testHeavyToolOrToolErrorEscalates() {
+        ModelRouter.Route light = router.route("Hi", null);
+        light.afterToolTurn(List.of(toolUse("calculator")), List.of(toolResult(ToolResultStatus.SUCCESS)));
+        assertEquals(ModelRouter.Tier.SMALL, light.tier());
+
+        ModelRouter.Route heavy = router.route("Hi", null);
+        heavy.afterToolTurn(List.of(toolUse("get_web_page")), List.of(toolResult(ToolResultStatus.SUCCESS)));
+        assertEquals(ModelRouter.Tier.LARGE, heavy.tier());
+        assertEquals("large-1", heavy.model());
+
+        ModelRouter.Route failed = router.route("Hi", null);
+        failed.afterToolTurn(List.of(toolUse("calculator")), List.of(toolResult(ToolResultStatus.ERROR)));
+        assertEquals(ModelRouter.Tier.LARGE, failed.tier());
+
+        ModelRouter.Route pinned = router.route("Hi", "small-1");
+        pinned.afterToolTurn(List.of(toolUse("get_web_page")), List.of(toolResult(ToolResultStatus.ERROR)));
+        assertEquals("small-1", pinned.model());
+    }
+
+    @Test
+    void testFailingModelIsSkipped() {
+        ModelRouter.Route route = router.route("Hi", null);
+        assertEquals("small-1", route.model());
+
+        for (int i = 0; i < 4; i++) {
+            route.recordCall("small-1", 1_000_000, THROTTLED);
+        }
+        assertEquals("small-2", route.model());
+
+        for (int i = 0; i < 4; i++) {
+            route.recordCall("small-2", 1_000_000, SdkServiceException.builder().statusCode(503).build());
+        }
+        assertEquals("large-1", route.model());
+    }
+
+    @Test
+    void testOnlyModelFailuresCount() {
+        assertTrue(ModelRouter.isModelFailure(THROTTLED));
+        assertTrue(ModelRouter.isModelFailure(new CompletionException(SdkServiceException.builder().statusCode(500).build())));
+        assertTrue(ModelRouter.isModelFailure(ApiCallAttemptTimeoutException.create(1_000)));
+
+        assertFalse(ModelRouter.isModelFailure(ValidationException.builder().statusCode(400).build()));
+        assertFalse(ModelRouter.isModelFailure(ApiCallTimeoutException.create(1_000)));
+        assertFalse(ModelRouter.isModelFailure(new CancellationException()));
+        assertFalse(ModelRouter.isModelFailure(new CompletionException(new UncheckedIOException(new IOException("Broken pipe")))));
+
+        ModelRouter.Route route = router.route("Hi", null);
+        for (int i = 0; i < 4; i++) {
+            route.recordCall("small-1", 1_000_000, ApiCallTimeoutException.create(1_000));
+        }
+        assertEquals("small-1", route.model());
+        assertEquals(0.0, router.getStats().get(0).errorRate());
+    }
+
+    @Test
+    void testErrorRateDecays() {
+        ModelRouter.ModelStats stats = new ModelRouter.ModelStats(ModelRouter.Tier.SMALL);
+        for (int i = 0; i < 4; i++) {
+            stats.record(100, true);
+        }
+        long now = System.nanoTime();
+        double errorRate = stats.errorRate(now);
+        assertTrue(errorRate > ModelRouter.MAX_ERROR_RATE);
+        assertEquals(errorRate / 2, stats.errorRate(now + ModelRouter.ERROR_RATE_HALF_LIFE_NANOS), 1e-9);
+
+        stats.record(100, false);
+        assertEquals(100.0, stats.latencyMs());
+    }
+
+    private static ToolUseBlock toolUse(String name) {
+        return ToolUseBlock.builder().toolUseId(name).name(name).build();
+    }
+
+    private static ToolResultBlock toolResult(ToolResultStatus status) {
+        return ToolResultBlock.builder().toolUseId("id").status(status).build();
+    }
+}
@@ -0,0 +1,152 @@
+package co.verze.genai.mcpclient.service;
+
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ToolResultCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private ToolResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ToolClient delegate = new ToolClient() {
+            @Override
+            public CallToolResult callTool(CallToolRequest request) {
+                calls.incrementAndGet();
+                boolean isError = "fail".equals(request.arguments().get("operation"));
+                return new CallToolResult(List.of(new TextContent("result " + calls.get())), isError);
+            }
+
+            @Override
+            public Mono<CallToolResult> callToolAsync(CallToolRequest request) {
+                return Mono.fromSupplier(() -> callTool(request));
+            }
+        };
+
+        cache = new ToolResultCache(delegate, Map.of(
+                "calculator", ToolResultCache.FOREVER,
+                "get_web_page", Duration.ZERO), 2);
+    }
+
+    @Test
+    void testRepeatedCallIsServedFromCache() {
+        CallToolRequest request = new CallToolRequest("calculator", Map.of("operation", "add", "a", 1, "b", 2));
+
+        CallToolResult first = cache.callTool(request);
+        CallToolResult second = cache.callTool(request);
+
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getStats().hits());
+        assertEquals(1, cache.getStats().misses());
+    }
+
+    @Test
+    void testKeyIgnoresArgumentOrderAndNumberFormat() {
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("operation", "add");
+        ordered.put("a", 1);
+        ordered.put("b", 2.0);
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("b", 2);
+        reordered.put("a", 1.0);
+        reordered.put("operation", "add");
+
+        assertEquals(
+                ToolResultCache.key(new CallToolRequest("calculator", ordered)),
+                ToolResultCache.key(new CallToolRequest("calculator", reordered)));
+    }
+
+    @Test
+    void testErrorResultsAreNotCached() {
+        CallToolRequest request = new CallToolRequest("calculator", Map.of("operation", "fail", "a", 1, "b", 0));
+
+        cache.callTool(request);
+        cache.callTool(request);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getStats().size());
+    }
+
+    @Test
+    void testToolsWithoutPolicyAreNotCached() {
+        CallToolRequest request = new CallToolRequest("get_web_page", Map.of("url", "https://example.com"));
+
+        cache.callTool(request);
+        cache.callToolAsync(request).block();
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getStats().misses());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        CallToolRequest one = new CallToolRequest("calculator", Map.of("operation", "add", "a", 1, "b", 1));
+        CallToolRequest two = new CallToolRequest("calculator", Map.of("operation", "add", "a", 2, "b", 2));
+        CallToolRequest three = new CallToolRequest("calculator", Map.of("operation", "add", "a", 3, "b", 3));
+
+        cache.callTool(one);
+        cache.callTool(two);
+        cache.callTool(one);    // one is now more recently used than two
+        cache.callTool(three);  // evicts two
+        cache.callToolAsync(one).block();
+
+        assertEquals(3, calls.get());
+        assertEquals(2, cache.getStats().size());
+        assertEquals(1, cache.getStats().evictions());
+    }
+
+    @Test
+    void testIdenticalCallsInFlightAreCoalesced() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ToolClient slow = new ToolClient() {
+            @Override
+            public CallToolResult callTool(CallToolRequest request) {
+                calls.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new CallToolResult(List.of(new TextContent("page")), false);
+            }
+
+            @Override
+            public Mono<CallToolResult> callToolAsync(CallToolRequest request) {
+                return Mono.fromSupplier(() -> callTool(request));
+            }
+        };
+        ToolResultCache slowCache = new ToolResultCache(slow, Map.of("get_web_page", Duration.ofMinutes(1)), 2);
+        CallToolRequest request = new CallToolRequest("get_web_page", Map.of("url", "https://example.com"));
+
+        CompletableFuture<CallToolResult> first = CompletableFuture.supplyAsync(() -> slowCache.callTool(request));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<CallToolResult> second = CompletableFuture.supplyAsync(() -> slowCache.callTool(request));
+        while (slowCache.getStats().coalesced() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, slowCache.getStats().coalesced());
+    }
+}
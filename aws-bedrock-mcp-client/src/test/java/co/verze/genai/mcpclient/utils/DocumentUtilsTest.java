@@ -0,0 +1,49 @@
+package co.verze.genai.mcpclient.utils;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.document.Document;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentUtilsTest {
+
+    @Test
+    void numbersSurviveTheRoundTripExactly() {
+        Document document = DocumentUtils.fromJson(
+                "{\"int\":42,\"long\":9007199254740993,\"big\":123456789012345678901234567890,\"decimal\":0.1000000000000000055511151231257827}");
+
+        Map<String, Object> map = DocumentUtils.toMap(document);
+
+        assertEquals(42, map.get("int"));
+        assertEquals(9007199254740993L, map.get("long"));
+        assertEquals(new BigInteger("123456789012345678901234567890"), map.get("big"));
+        assertEquals(new BigDecimal("0.1000000000000000055511151231257827"), map.get("decimal"));
+    }
+
+    @Test
+    void nestedValuesKeepTheirShapeAndOrder() {
+        Document document = DocumentUtils.fromJson("{\"b\":[true,null,\"x\"],\"a\":{\"c\":false}}");
+
+        Map<String, Object> map = DocumentUtils.toMap(document);
+
+        assertEquals(List.of("b", "a"), List.copyOf(map.keySet()));
+        assertEquals(Map.of("c", false), map.get("a"));
+        List<?> list = (List<?>) map.get("b");
+        assertEquals(true, list.get(0));
+        assertNull(list.get(1));
+        assertEquals("x", list.get(2));
+    }
+
+    @Test
+    void valuesAreStreamedWithoutATree() {
+        Document document = DocumentUtils.fromValue(Map.of("type", "object", "required", List.of("operation")));
+
+        assertEquals("object", document.asMap().get("type").asString());
+        assertEquals("operation", document.asMap().get("required").asList().get(0).asString());
+    }
+}
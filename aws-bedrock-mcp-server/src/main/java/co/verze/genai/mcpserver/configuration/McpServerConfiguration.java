@@ -8,17 +8,25 @@ import org.springframework.context.annotation.Configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.Map;
+import java.util.function.Function;
+
 import co.verze.genai.mcpserver.tools.CalculatorTool;
+import co.verze.genai.mcpserver.tools.MultiWeatherTool;
+import co.verze.genai.mcpserver.tools.TimedTool;
 import co.verze.genai.mcpserver.tools.WeatherTool;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.server.McpSyncServer;
 import io.modelcontextprotocol.server.transport.StdioServerTransport;
 import io.modelcontextprotocol.spec.ServerMcpTransport;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import io.modelcontextprotocol.spec.McpSchema.Implementation;
 import io.modelcontextprotocol.spec.McpSchema.LoggingLevel;
 import io.modelcontextprotocol.spec.McpSchema.LoggingMessageNotification;
 import io.modelcontextprotocol.spec.McpSchema.ServerCapabilities;
+import io.modelcontextprotocol.spec.McpSchema.Tool;
 
 @Configuration
 public class McpServerConfiguration {
@@ -39,7 +47,21 @@ public class McpServerConfiguration {
     public McpSyncServer mcpSyncServer(ServerMcpTransport transport,
                                        CalculatorTool calculatorTool,
                                        WeatherTool weatherTool,
-                                       WebPageTool webPageTool) {
+                                       MultiWeatherTool multiWeatherTool,
+                                       WebPageTool webPageTool,
+                                       MeterRegistry meterRegistry) {
+        return createMcpSyncServer(transport, calculatorTool, weatherTool, multiWeatherTool, webPageTool, meterRegistry);
+    }
+
+    /**
+     * Create the MCP server with its tools on any transport, the MCP client uses this to host the tools in process.
+     */
+    public static McpSyncServer createMcpSyncServer(ServerMcpTransport transport,
+                                                    CalculatorTool calculatorTool,
+                                                    WeatherTool weatherTool,
+                                                    MultiWeatherTool multiWeatherTool,
+                                                    WebPageTool webPageTool,
+                                                    MeterRegistry meterRegistry) {
         log.info("Initializing McpSyncServer with transport: {}", transport);
         
         // Create a server with custom configuration
@@ -63,23 +85,30 @@ public class McpServerConfiguration {
         // Register the calculator tool
         var calculatorToolRegistration = new McpServerFeatures.SyncToolRegistration(
             calculatorTool.getToolDefinition(),
-            calculatorTool
+            timed(calculatorTool.getToolDefinition(), calculatorTool, meterRegistry)
         );
         
         // Register the weather tool
         var weatherToolRegistration = new McpServerFeatures.SyncToolRegistration(
             weatherTool.getToolDefinition(),
-            weatherTool
+            timed(weatherTool.getToolDefinition(), weatherTool, meterRegistry)
+        );
+
+        // Register the multi-location weather tool
+        var multiWeatherToolRegistration = new McpServerFeatures.SyncToolRegistration(
+            multiWeatherTool.getToolDefinition(),
+            timed(multiWeatherTool.getToolDefinition(), multiWeatherTool, meterRegistry)
         );
 
         // Register the weather tool
         var webPageToolRegistration = new McpServerFeatures.SyncToolRegistration(
                 webPageTool.getToolDefinition(),
-                webPageTool
+                timed(webPageTool.getToolDefinition(), webPageTool, meterRegistry)
         );
 
         syncServer.addTool(calculatorToolRegistration);
         syncServer.addTool(weatherToolRegistration);
+        syncServer.addTool(multiWeatherToolRegistration);
         syncServer.addTool(webPageToolRegistration);
 
         log.info("MCP Server initialized with capabilities: tools={}, prompts={}, resources={}",
@@ -88,4 +117,9 @@ public class McpServerConfiguration {
                 syncServer.getServerCapabilities().resources());
         return syncServer;
     }
-}
\ No newline at end of file
+
+    private static TimedTool timed(Tool toolDefinition, Function<Map<String, Object>, CallToolResult> tool,
+                                   MeterRegistry meterRegistry) {
+        return new TimedTool(toolDefinition.name(), tool, meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package co.verze.genai.mcpserver.configuration;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import co.verze.genai.mcpserver.tools.WeatherTool;
+import io.modelcontextprotocol.spec.McpSchema;
+
+/**
+ * Reachability metadata for the native image that Spring AOT can't infer.
+ * <p>
+ * The MCP SDK reads and writes its JSON-RPC schema records with Jackson, and the weather tool binds the
+ * weather API response to records, all of it by reflection. Flexmark loads its emoji table as a resource.
+ */
+public class McpServerRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        registerNested(hints, McpSchema.class);
+        registerNested(hints, WeatherTool.class);
+        hints.resources().registerPattern("EmojiReference.txt");
+    }
+
+    private static void registerNested(RuntimeHints hints, Class<?> type) {
+        hints.reflection().registerType(type, MemberCategory.values());
+        for (Class<?> nested : type.getDeclaredClasses()) {
+            registerNested(hints, nested);
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package co.verze.genai.mcpserver.configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 import co.verze.genai.mcpserver.tools.WebPageTool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertyResolver;
 //import org.springframework.web.reactive.function.client.WebClient;
 
 import co.verze.genai.mcpserver.tools.CalculatorTool;
+import co.verze.genai.mcpserver.tools.MultiWeatherTool;
+import co.verze.genai.mcpserver.tools.WeatherCache;
 import co.verze.genai.mcpserver.tools.WeatherTool;
+import co.verze.genai.mcpserver.tools.WebPageCache;
 
 /**
  * Configuration for MCP tools.
@@ -25,14 +32,53 @@ public class ToolsConfiguration {
     }
     
     @Bean
-    public WeatherTool weatherTool(@Value("${tools.weather-api-key}") String apiKey) {
-        log.info("Creating WeatherTool bean with API key '{}'", apiKey);
-        return new WeatherTool(apiKey);
+    public WeatherTool weatherTool(Environment environment) {
+        return createWeatherTool(environment);
     }
 
     @Bean
-    public WebPageTool webPageTool() {
+    public MultiWeatherTool multiWeatherTool(WeatherTool weatherTool, Environment environment) {
+        return createMultiWeatherTool(weatherTool, environment);
+    }
+
+    @Bean
+    public WebPageTool webPageTool(Environment environment) {
+        return createWebPageTool(environment);
+    }
+
+    // The factories below also build the tools the client hosts in process, from the client's properties
+
+    public static WeatherTool createWeatherTool(PropertyResolver properties) {
+        String apiKey = properties.getRequiredProperty("tools.weather-api-key");
+        log.info("Creating WeatherTool bean with API key '{}'", apiKey);
+        return new WeatherTool(apiKey, new WeatherCache.Settings(
+                Duration.ofSeconds(properties.getProperty("tools.weather.cache.ttl-seconds", Long.class, 300L)),
+                Duration.ofSeconds(properties.getProperty("tools.weather.cache.refresh-ahead-seconds", Long.class, 30L)),
+                Duration.ofSeconds(properties.getProperty("tools.weather.cache.stale-seconds", Long.class, 1800L)),
+                Duration.ofMillis(properties.getProperty("tools.weather.cache.stale-timeout-millis", Long.class, 2000L)),
+                properties.getProperty("tools.weather.cache.max-entries", Integer.class, 1000)));
+    }
+
+    public static MultiWeatherTool createMultiWeatherTool(WeatherTool weatherTool, PropertyResolver properties) {
+        log.info("Creating MultiWeatherTool bean");
+        return new MultiWeatherTool(weatherTool,
+                properties.getProperty("tools.weather.multi.max-concurrency", Integer.class, 8),
+                Duration.ofSeconds(properties.getProperty("tools.weather.multi.location-timeout-seconds", Long.class, 10L)),
+                properties.getProperty("tools.weather.multi.max-locations", Integer.class, 20));
+    }
+
+    public static WebPageTool createWebPageTool(PropertyResolver properties) {
         log.info("Creating WebPageTool bean");
-        return new WebPageTool();
+        String cacheDirectory = properties.getProperty("tools.web-page.cache.directory",
+                System.getProperty("java.io.tmpdir") + "/mcp-web-page-cache");
+        return new WebPageTool(new WebPageTool.Limits(
+                properties.getProperty("tools.web-page.max-bytes", Integer.class, 5 * 1024 * 1024),
+                properties.getProperty("tools.web-page.max-chars", Integer.class, 500_000),
+                properties.getProperty("tools.web-page.page-chars", Integer.class, 8_000),
+                Duration.ofSeconds(properties.getProperty("tools.web-page.timeout-seconds", Long.class, 15L))),
+                new WebPageCache.Settings(Path.of(cacheDirectory),
+                        properties.getProperty("tools.web-page.cache.max-bytes", Long.class, 256L * 1024 * 1024),
+                        Duration.ofSeconds(properties.getProperty("tools.web-page.cache.fresh-seconds", Long.class, 600L)),
+                        properties.getProperty("tools.web-page.cache.map-threshold-bytes", Integer.class, 65536)));
     }
 }
@@ -0,0 +1,150 @@
+package co.verze.genai.mcpserver.tools;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import io.modelcontextprotocol.spec.McpSchema.Tool;
+
+/**
+ * MultiWeatherTool provides the current weather of several locations in one tool call.
+ * <p>
+ * All locations are looked up at once through the {@link WeatherTool}, so its cache and HTTP/2 connection are
+ * shared, at most {@code maxConcurrency} at a time and each within {@code locationTimeout}. A call takes about as
+ * long as its slowest location, a failing location is reported on its own line and fails the call only when every
+ * location failed.
+ */
+public class MultiWeatherTool implements Function<Map<String, Object>, CallToolResult> {
+    private static final Logger log = LoggerFactory.getLogger(MultiWeatherTool.class);
+    private final Tool toolDefinition;
+    private final WeatherTool weatherTool;
+    private final int maxConcurrency;
+    private final Duration locationTimeout;
+    private final int maxLocations;
+
+    public MultiWeatherTool(WeatherTool weatherTool) {
+        this(weatherTool, 8, Duration.ofSeconds(10), 20);
+    }
+
+    public MultiWeatherTool(WeatherTool weatherTool, int maxConcurrency, Duration locationTimeout, int maxLocations) {
+        this.weatherTool = weatherTool;
+        this.maxConcurrency = maxConcurrency;
+        this.locationTimeout = locationTimeout;
+        this.maxLocations = maxLocations;
+
+        this.toolDefinition = new Tool(
+            "get_weather_for_locations",
+            "Get the current weather in several locations at once, use it instead of repeated get_current_weather calls",
+            """
+            {
+                "type": "object",
+                "properties": {
+                    "locations": {
+                        "type": "array",
+                        "items": {
+                            "type": "string"
+                        },
+                        "minItems": 1,
+                        "maxItems": %d,
+                        "description": "The names of the cities e.g. [\\"San Francisco, CA\\", \\"Paris\\"]"
+                    },
+                    "format": {
+                        "type": "string",
+                        "enum": ["celsius", "fahrenheit"],
+                        "description": "The format to return the weather in"
+                    }
+                },
+                "required": ["locations"]
+            }
+            """.formatted(maxLocations)
+        );
+    }
+
+    /**
+     * Get the tool definition for registration with the MCP server.
+     *
+     * @return The Tool definition
+     */
+    public Tool getToolDefinition() {
+        return toolDefinition;
+    }
+
+    /**
+     * Apply the weather tool on every location of the given arguments.
+     *
+     * @param arguments Map containing locations and format
+     * @return The weather information, one line per location
+     */
+    @Override
+    public CallToolResult apply(Map<String, Object> arguments) {
+        List<String> locations = locations(arguments.get("locations"));
+        if (locations.isEmpty() || locations.size() > maxLocations) {
+            return new CallToolResult(
+                List.of(new TextContent("Error: Between 1 and " + maxLocations + " locations are required")),
+                true
+            );
+        }
+        WeatherTool.Format format = WeatherTool.Format.parse(arguments.get("format"));
+        log.info("Getting weather for {} locations", locations.size());
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<String>> lines = new ArrayList<>(locations.size());
+        try {
+            for (String location : locations) {
+                permits.acquire();
+                lines.add(weatherTool.lookup(location)
+                        .orTimeout(locationTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .whenComplete((response, e) -> permits.release())
+                        .handle((response, e) -> e == null
+                                ? WeatherTool.describe(response, format)
+                                : error(location, e)));
+            }
+            CompletableFuture.allOf(lines.toArray(CompletableFuture[]::new)).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new CallToolResult(List.of(new TextContent("Error getting weather: interrupted")), true);
+        }
+
+        List<String> results = lines.stream().map(CompletableFuture::join).toList();
+        boolean allFailed = results.stream().allMatch(line -> line.startsWith("Error"));
+        return new CallToolResult(
+            List.of(new TextContent(String.join("\n", results))),
+            allFailed
+        );
+    }
+
+    // The distinct non-blank locations, "Paris" and " paris " are looked up once
+    private static List<String> locations(Object argument) {
+        Map<String, String> locations = new LinkedHashMap<>();
+        if (argument instanceof List<?> list) {
+            for (Object location : list) {
+                if (location instanceof String name && !name.isBlank()) {
+                    locations.putIfAbsent(WeatherCache.key(name), name.trim());
+                }
+            }
+        }
+        return List.copyOf(locations.values());
+    }
+
+    private String error(String location, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        String message = cause instanceof TimeoutException
+                ? "no response within " + locationTimeout.toMillis() + " ms"
+                : cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        log.warn("Error getting weather for '{}': {}", location, message);
+        return "Error getting weather for " + location + ": " + message;
+    }
+}
@@ -0,0 +1,44 @@
+package co.verze.genai.mcpserver.tools;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+
+/**
+ * Records the latency and outcome of every call to a tool as the {@code mcp.server.tool.calls} timer,
+ * the server side counterpart of the client's {@code mcp.client.tool.calls}.
+ */
+public class TimedTool implements Function<Map<String, Object>, CallToolResult> {
+    private final String toolName;
+    private final Function<Map<String, Object>, CallToolResult> tool;
+    private final MeterRegistry meterRegistry;
+
+    public TimedTool(String toolName, Function<Map<String, Object>, CallToolResult> tool, MeterRegistry meterRegistry) {
+        this.toolName = toolName;
+        this.tool = tool;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public CallToolResult apply(Map<String, Object> arguments) {
+        long start = System.nanoTime();
+        String outcome = "exception";
+        try {
+            CallToolResult result = tool.apply(arguments);
+            outcome = Boolean.TRUE.equals(result.isError()) ? "error" : "success";
+            return result;
+        } finally {
+            Timer.builder("mcp.server.tool.calls")
+                    .description("Tool call latency on the server side of the MCP transport")
+                    .tag("tool", toolName)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package co.verze.genai.mcpserver.tools;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the weatherapi.com responses of the {@link WeatherTool} by normalized location.
+ * <ul>
+ *     <li>Fresh for {@code ttl}, within {@code refreshAhead} of expiry the entry is still served while it is
+ *     refreshed in the background</li>
+ *     <li>Once expired it is stale for another {@code staleFor}, a lookup then waits up to {@code staleTimeout} for
+ *     the refresh and serves the stale entry when the upstream is slower or fails</li>
+ *     <li>Concurrent lookups of the same location share one upstream call</li>
+ * </ul>
+ * Failed calls are never cached, at most {@code maxEntries} locations are kept, least recently used evicted first.
+ * Lookups never block, so many locations can be looked up at once.
+ */
+public class WeatherCache {
+    private static final Logger log = LoggerFactory.getLogger(WeatherCache.class);
+    private final Settings settings;
+    private final Loader loader;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, CompletableFuture<WeatherTool.Response>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Cache settings, a zero {@code ttl} disables the cache.
+     */
+    public record Settings(Duration ttl, Duration refreshAhead, Duration staleFor, Duration staleTimeout,
+                           int maxEntries) {
+        public static final Settings DEFAULTS = new Settings(Duration.ofMinutes(5), Duration.ofSeconds(30),
+                Duration.ofMinutes(30), Duration.ofSeconds(2), 1000);
+    }
+
+    /**
+     * The upstream call, asynchronous so it holds no thread while waiting for the upstream.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        CompletableFuture<WeatherTool.Response> load(String location);
+    }
+
+    public WeatherCache(Settings settings, Loader loader) {
+        this.settings = settings;
+        this.loader = loader;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > settings.maxEntries();
+            }
+        };
+    }
+
+    /**
+     * Look up the weather of a location, calling the upstream when there is no usable entry.
+     *
+     * @return The response, or the failure of the upstream call when there was nothing to serve instead
+     */
+    public CompletableFuture<WeatherTool.Response> get(String location) {
+        if (settings.ttl().isZero()) {
+            return loader.load(location);
+        }
+        String key = key(location);
+        Entry entry = lookup(key);
+        long age = entry != null ? System.nanoTime() - entry.fetchedAt() : Long.MAX_VALUE;
+
+        if (age < settings.ttl().minus(settings.refreshAhead()).toNanos()) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(entry.response());
+        }
+        if (age < settings.ttl().toNanos()) {
+            hits.incrementAndGet();
+            refresh(key, location);
+            return CompletableFuture.completedFuture(entry.response());
+        }
+        if (age < settings.ttl().plus(settings.staleFor()).toNanos()) {
+            // A copy, so the timeout of this lookup does not fail the others sharing the call
+            return refresh(key, location).copy()
+                    .orTimeout(settings.staleTimeout().toNanos(), TimeUnit.NANOSECONDS)
+                    .handle((refreshed, e) -> {
+                        if (e == null) {
+                            misses.incrementAndGet();
+                            return refreshed;
+                        }
+                        Throwable cause = unwrap(e);
+                        log.warn("Serving stale weather for '{}', refresh {}", location,
+                                cause instanceof TimeoutException ? "is too slow" : "failed: " + cause.getMessage());
+                        staleHits.incrementAndGet();
+                        return entry.response();
+                    });
+        }
+        misses.incrementAndGet();
+        return refresh(key, location).copy();
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(size, hits.get(), misses.get(), staleHits.get(), refreshes.get(), coalesced.get());
+    }
+
+    // Starts an upstream call unless one for the same location is already running
+    private CompletableFuture<WeatherTool.Response> refresh(String key, String location) {
+        CompletableFuture<WeatherTool.Response> call = new CompletableFuture<>();
+        CompletableFuture<WeatherTool.Response> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return running;
+        }
+        refreshes.incrementAndGet();
+        CompletableFuture<WeatherTool.Response> load;
+        try {
+            load = loader.load(location);
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        load.whenComplete((response, e) -> {
+            if (e == null) {
+                synchronized (entries) {
+                    entries.put(key, new Entry(response, System.nanoTime()));
+                }
+            }
+            // Removed before completing, so a lookup triggered by the completion starts a call of its own
+            inFlight.remove(key, call);
+            if (e == null) {
+                call.complete(response);
+            } else {
+                call.completeExceptionally(unwrap(e));
+            }
+        });
+        return call;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private Entry lookup(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.fetchedAt() >= settings.ttl().plus(settings.staleFor()).toNanos()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * "New York", " new  york " and "NEW YORK" are the same location.
+     */
+    static String key(String location) {
+        return location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(WeatherTool.Response response, long fetchedAt) {
+    }
+
+    /**
+     * Lookup counters, {@code staleHits} counts the stale entries served because the upstream was slow or failing.
+     */
+    public record Stats(int size, long hits, long misses, long staleHits, long refreshes, long coalesced) {
+    }
+}
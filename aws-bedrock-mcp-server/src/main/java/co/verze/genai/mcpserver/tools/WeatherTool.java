@@ -5,10 +5,14 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -32,22 +36,35 @@ import io.modelcontextprotocol.spec.McpSchema.Tool;
 
 /**
  * WeatherTool provides weather information as a tool for the MCP server.
+ * Responses are cached by location, see {@link WeatherCache}. Lookups are asynchronous over one shared HTTP/2
+ * client, so the {@link MultiWeatherTool} can look up many locations at once.
  */
 @Component
 public class WeatherTool implements Function<Map<String, Object>, CallToolResult> {
     private static final Logger log = LoggerFactory.getLogger(WeatherTool.class);
+    // Thread safe and immutable, so one reader serves every call
+    private static final ObjectReader RESPONSE_READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(Response.class);
     private final Tool toolDefinition;
     private final HttpClient httpClient;
     private final String baseUrl;
     private final String apiKey;
-    
+    private final WeatherCache cache;
+
     public WeatherTool(String apiKey) {
+        this(apiKey, WeatherCache.Settings.DEFAULTS);
+    }
+
+    public WeatherTool(String apiKey, WeatherCache.Settings cacheSettings) {
         log.info("Creating WeatherTool bean with API key '{}'", apiKey);
         this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
         this.baseUrl = "https://api.weatherapi.com/v1";
         this.apiKey = apiKey;
+        this.cache = new WeatherCache(cacheSettings, this::fetch);
         
         this.toolDefinition = new Tool(
             "get_current_weather",
@@ -112,80 +129,108 @@ public class WeatherTool implements Function<Map<String, Object>, CallToolResult
                 );
             }
             
-            Format format = Format.CELSIUS;  // Default format
-            String formatStr = (String) arguments.get("format");
-            if (formatStr != null && !formatStr.trim().isEmpty() && 
-                formatStr.toLowerCase().equals("fahrenheit")) {
-                format = Format.FAHRENHEIT;
-            }
+            Format format = Format.parse(arguments.get("format"));
             log.info("Getting weather for '{}'", location);
 
-            // Create query parameters map
-            Map<String, String> params = Map.of(
-                "key", apiKey,
-                "q", location,
-                "aqi", "no");
-
-            // Build properly encoded URL
-            String url = buildUrl("/current.json", params);
+            Response response = lookup(location).get();
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .timeout(Duration.ofSeconds(15))
-                    .build();
-
-            HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            // Check if response is successful
-            if (httpResponse.statusCode() != 200) {
-                throw new IOException("Unexpected response code: " + httpResponse.statusCode());
-            }
-
-            // Configure ObjectMapper to ignore unknown properties
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-            // Parse JSON response
-            Response response = mapper.readValue(httpResponse.body(), Response.class);
-
-            log.info("Weather for '{}': {}", location, response);
-
-            // Format response
-            String weatherText;
-            if (format == Format.CELSIUS) {
-                weatherText = String.format(
-                    "Current weather in %s, %s: %s, %.1f°C, Precipitation: %.1f mm",
-                    response.location().name(),
-                    response.location().country(),
-                    response.current().condition().text(),
-                    response.current().temp_c(),
-                    response.current().precipIn() * 25.4 // Convert inches to mm
-                );
-            } else {
-                weatherText = String.format(
-                    "Current weather in %s, %s: %s, %.1f°F, Precipitation: %.1f in",
-                    response.location().name(),
-                    response.location().country(),
-                    response.current().condition().text(),
-                    response.current().temp_c() * 9/5 + 32, // Convert C to F
-                    response.current().precipIn()
-                );
-            }
-            
             return new CallToolResult(
-                List.of(new TextContent(weatherText)),
+                List.of(new TextContent(describe(response, format))),
                 false
             );
         } catch (Exception e) {
-            log.error("Error getting weather", e);
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Error getting weather", cause);
             return new CallToolResult(
-                List.of(new TextContent("Error getting weather: " + e.getMessage())),
+                List.of(new TextContent("Error getting weather: " + cause.getMessage())),
                 true
             );
         }
     }
+
+    /**
+     * Look up the current weather of a location without blocking, from the cache when possible.
+     *
+     * @param location The name of the city
+     * @return The weather, or the failure of the upstream call
+     */
+    public CompletableFuture<Response> lookup(String location) {
+        return cache.get(location);
+    }
+
+    /**
+     * Format the current weather as one line of text.
+     */
+    static String describe(Response response, Format format) {
+        if (format == Format.CELSIUS) {
+            return String.format(
+                "Current weather in %s, %s: %s, %.1f°C, Precipitation: %.1f mm",
+                response.location().name(),
+                response.location().country(),
+                response.current().condition().text(),
+                response.current().temp_c(),
+                response.current().precipIn() * 25.4 // Convert inches to mm
+            );
+        }
+        return String.format(
+            "Current weather in %s, %s: %s, %.1f°F, Precipitation: %.1f in",
+            response.location().name(),
+            response.location().country(),
+            response.current().condition().text(),
+            response.current().temp_c() * 9/5 + 32, // Convert C to F
+            response.current().precipIn()
+        );
+    }
     
+    public WeatherCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    // The upstream call behind the cache
+    private CompletableFuture<Response> fetch(String location) {
+        // Create query parameters map
+        Map<String, String> params = Map.of(
+            "key", apiKey,
+            "q", location,
+            "aqi", "no");
+
+        // Build properly encoded URL
+        String url = buildUrl("/current.json", params);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .GET()
+                .timeout(Duration.ofSeconds(15))
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(httpResponse -> {
+                    // Check if response is successful
+                    if (httpResponse.statusCode() != 200) {
+                        throw new CompletionException(
+                                new IOException("Unexpected response code: " + httpResponse.statusCode()));
+                    }
+                    try {
+                        // Parse JSON response
+                        Response response = parseResponse(httpResponse.body());
+                        log.info("Weather for '{}': {}", location, response);
+                        return response;
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Parse a weatherapi.com current weather response.
+     *
+     * @param body The JSON response body
+     * @return The fields of the response used by the tool
+     */
+    public Response parseResponse(String body) throws IOException {
+        return RESPONSE_READER.readValue(body);
+    }
+
     enum Format {
         CELSIUS("celsius"), 
         FAHRENHEIT("fahrenheit");
@@ -196,6 +241,11 @@ public class WeatherTool implements Function<Map<String, Object>, CallToolResult
             this.formatName = formatName;
         }
 
+        // Celsius unless fahrenheit is asked for
+        static Format parse(Object format) {
+            return format instanceof String name && name.trim().equalsIgnoreCase("fahrenheit") ? FAHRENHEIT : CELSIUS;
+        }
+
         @Override
         public String toString() {
             return formatName;
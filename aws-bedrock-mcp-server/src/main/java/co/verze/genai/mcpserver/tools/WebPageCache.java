@@ -0,0 +1,388 @@
+package co.verze.genai.mcpserver.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the fetched web pages of the {@link WebPageTool} in files, so they survive restarts of the MCP server.
+ * <p>
+ * An entry holds the page as it was read, its Markdown and the {@code ETag} and {@code Last-Modified} of the
+ * response. Within {@code fresh} of being fetched it is served as is, afterwards the page is revalidated with a
+ * conditional GET. Entries of at least {@code mapThreshold} bytes are read memory-mapped, so only the parts used
+ * are paged in. At most {@code maxBytes} are kept on disk, least recently used evicted first.
+ * <p>
+ * The MCP server processes of a pool share the directory. A page another process stored is found on disk, and the
+ * index of every process is rebuilt from the directory at least every {@code SYNC_INTERVAL}, so the size limit
+ * counts the pages of all of them; in between the directory can grow by what the other processes store.
+ * <p>
+ * The cache is best effort, a file that can't be read or written is a miss and never fails the tool call.
+ */
+public class WebPageCache {
+    private static final Logger log = LoggerFactory.getLogger(WebPageCache.class);
+    // Changes with the layout or the Markdown flavour, files of another version are dropped
+    private static final int MAGIC = 0x57504332;
+    private static final String SUFFIX = ".page";
+    // Position of fetchedAt, updated in place when a page is revalidated
+    private static final int FETCHED_AT_OFFSET = 4;
+    private static final long SYNC_INTERVAL_NANOS = Duration.ofSeconds(30).toNanos();
+    // Writing a page takes milliseconds, an older temporary file was left by a process that stopped while writing
+    private static final Duration STALE_TEMP = Duration.ofMinutes(5);
+    private final Settings settings;
+    // File name to file size, in access order
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final AtomicLong syncedAt = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Cache settings, a {@code maxBytes} of zero disables the cache.
+     */
+    public record Settings(Path directory, long maxBytes, Duration fresh, int mapThreshold) {
+        public static final Settings DISABLED = new Settings(null, 0, Duration.ZERO, 0);
+    }
+
+    /**
+     * A cached page.
+     *
+     * @param fetchedAt Epoch millis of the last fetch or revalidation
+     * @param charset   The charset of the raw page, may be null
+     * @param clipped   Whether only the first bytes of the page were read
+     * @param maxChars  The character budget the Markdown was converted with
+     * @param raw       The page as it was read, read-only
+     */
+    public record Entry(String url, long fetchedAt, String etag, String lastModified, String charset,
+                        boolean clipped, int maxChars, String markdown, ByteBuffer raw) {
+    }
+
+    public WebPageCache(Settings settings) {
+        this.settings = settings.maxBytes() > 0 && usable(settings.directory()) ? settings : Settings.DISABLED;
+        if (this.settings.maxBytes() > 0) {
+            sync();
+        }
+    }
+
+    /**
+     * Look up a page.
+     *
+     * @return The cached page, fresh or not, null when there is none
+     */
+    public Entry get(String url) {
+        if (settings.maxBytes() <= 0) {
+            return null;
+        }
+        String name = fileName(url);
+        boolean indexed;
+        synchronized (files) {
+            indexed = files.get(name) != null;
+        }
+        Path file = settings.directory().resolve(name);
+        // Another process may have stored the page since the index was last synced
+        if (!indexed && !Files.exists(file)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            Entry entry = read(file);
+            if (!entry.url().equals(url)) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (!indexed) {
+                added(name, Files.size(file));
+            }
+            if (isFresh(entry)) {
+                hits.incrementAndGet();
+            }
+            // The modification time is the access time, so the order survives a restart
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        } catch (NoSuchFileException e) {
+            // Evicted by another process
+            forget(name);
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Dropping unreadable cached page {}: {}", file, e.getMessage());
+            remove(name);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Whether a page can be served without asking the web server.
+     */
+    public boolean isFresh(Entry entry) {
+        return System.currentTimeMillis() - entry.fetchedAt() < settings.fresh().toMillis();
+    }
+
+    /**
+     * Mark a page as fetched now, after the web server answered a conditional GET with 304 Not Modified.
+     */
+    public void revalidated(Entry entry) {
+        revalidated.incrementAndGet();
+        Path file = settings.directory().resolve(fileName(entry.url()));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, System.currentTimeMillis()), FETCHED_AT_OFFSET);
+        } catch (IOException e) {
+            log.warn("Could not update cached page {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Store a page, replacing any earlier version.
+     */
+    public void put(Entry entry) {
+        if (settings.maxBytes() <= 0) {
+            return;
+        }
+        String name = fileName(entry.url());
+        Path file = settings.directory().resolve(name);
+        try {
+            Path temp = Files.createTempFile(settings.directory(), name, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (ByteBuffer buffer : encode(entry)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            long size = Files.size(temp);
+            if (size > settings.maxBytes()) {
+                Files.delete(temp);
+                return;
+            }
+            // Readers see either the old or the new file, never a partly written one
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            added(name, size);
+            long now = System.nanoTime();
+            long last = syncedAt.get();
+            if (now - last > SYNC_INTERVAL_NANOS && syncedAt.compareAndSet(last, now)) {
+                sync();
+            }
+        } catch (IOException e) {
+            log.warn("Could not cache page {}: {}", entry.url(), e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (files) {
+            return new Stats(files.size(), totalBytes, hits.get(), revalidated.get(), misses.get(), evictions.get());
+        }
+    }
+
+    private static boolean usable(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            return true;
+        } catch (IOException e) {
+            log.warn("Web page cache disabled, can't use directory {}: {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    // Rebuilds the index from the directory, with the pages of earlier runs and other processes, oldest access first
+    private void sync() {
+        syncedAt.set(System.nanoTime());
+        List<Path> pages = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(settings.directory())) {
+            long staleBefore = System.currentTimeMillis() - STALE_TEMP.toMillis();
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    pages.add(path);
+                } else if (name.endsWith(".tmp") && lastModified(path).toMillis() < staleBefore) {
+                    // Left behind by a process that stopped while writing, others may still be writing theirs
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list all cached web pages: {}", e.getMessage());
+        }
+        pages.sort(Comparator.comparing(WebPageCache::lastModified));
+        synchronized (files) {
+            files.clear();
+            totalBytes = 0;
+        }
+        for (Path page : pages) {
+            try {
+                added(page.getFileName().toString(), Files.size(page));
+            } catch (IOException e) {
+                // Evicted by another process meanwhile
+            }
+        }
+        log.debug("Synced {} cached web pages, {} bytes", files.size(), totalBytes);
+    }
+
+    private void added(String name, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (files) {
+            Long previous = files.put(name, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            var eldest = files.entrySet().iterator();
+            while (totalBytes > settings.maxBytes() && eldest.hasNext()) {
+                Map.Entry<String, Long> oldest = eldest.next();
+                if (oldest.getKey().equals(name)) {
+                    continue;
+                }
+                totalBytes -= oldest.getValue();
+                evicted.add(oldest.getKey());
+                eldest.remove();
+            }
+        }
+        for (String oldest : evicted) {
+            evictions.incrementAndGet();
+            delete(oldest);
+        }
+    }
+
+    private void remove(String name) {
+        forget(name);
+        delete(name);
+    }
+
+    private void forget(String name) {
+        synchronized (files) {
+            Long size = files.remove(name);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    private void delete(String name) {
+        try {
+            Files.deleteIfExists(settings.directory().resolve(name));
+        } catch (IOException e) {
+            log.warn("Could not delete cached page {}: {}", name, e.getMessage());
+        }
+    }
+
+    private Entry read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= settings.mapThreshold()) {
+                // Stays valid after the channel is closed and even after the file is replaced or deleted
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                }
+                buffer.flip();
+            }
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a cached page");
+        }
+        long fetchedAt = buffer.getLong();
+        String url = readString(buffer);
+        String etag = readString(buffer);
+        String lastModified = readString(buffer);
+        String charset = readString(buffer);
+        boolean clipped = buffer.get() != 0;
+        int maxChars = buffer.getInt();
+        String markdown = readString(buffer);
+        int rawLength = buffer.getInt();
+        ByteBuffer raw = buffer.slice(buffer.position(), rawLength).asReadOnlyBuffer();
+        return new Entry(url, fetchedAt, etag, lastModified, charset, clipped, maxChars, markdown, raw);
+    }
+
+    private static ByteBuffer[] encode(Entry entry) {
+        byte[][] strings = {bytes(entry.url()), bytes(entry.etag()), bytes(entry.lastModified()),
+                bytes(entry.charset())};
+        byte[] markdown = bytes(entry.markdown());
+        int headerSize = Integer.BYTES + Long.BYTES + 1 + Integer.BYTES + 2 * Integer.BYTES + markdown.length;
+        for (byte[] string : strings) {
+            headerSize += Integer.BYTES + (string != null ? string.length : 0);
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerSize)
+                .putInt(MAGIC)
+                .putLong(entry.fetchedAt());
+        for (byte[] string : strings) {
+            putBytes(header, string);
+        }
+        header.put((byte) (entry.clipped() ? 1 : 0))
+                .putInt(entry.maxChars());
+        putBytes(header, markdown);
+        header.putInt(entry.raw().remaining())
+                .flip();
+        // The raw page is written as it is, without another copy
+        return new ByteBuffer[] {header, entry.raw().duplicate()};
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    // A length of -1 stands for null
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    static String fileName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lookup counters, {@code hits} counts the fresh pages served without asking the web server and
+     * {@code revalidated} the pages the web server confirmed unchanged.
+     */
+    public record Stats(int entries, long bytes, long hits, long revalidated, long misses, long evictions) {
+    }
+}
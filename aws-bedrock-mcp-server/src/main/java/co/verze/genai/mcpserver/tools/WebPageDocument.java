@@ -0,0 +1,155 @@
+package co.verze.genai.mcpserver.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The Markdown of a web page split into sections at its headings, so it can be read a page or a section at a time.
+ * <p>
+ * A section starts at its heading and ends at the next heading of the same or a higher level, so it includes its
+ * subsections. Headings inside fenced code blocks are not headings.
+ */
+public class WebPageDocument {
+    private final String markdown;
+    private final List<Section> sections;
+
+    /**
+     * A section of the document.
+     *
+     * @param id    Unique within the document, derived from the heading
+     * @param level 1 to 6
+     * @param start Offset of the heading in the document
+     * @param end   Offset after the last character of the section
+     */
+    public record Section(String id, int level, String title, int start, int end) {
+        public int size() {
+            return end - start;
+        }
+    }
+
+    /**
+     * A part of the document.
+     *
+     * @param text Its content
+     * @param next Offset to continue reading from, -1 at the end of the document or section
+     */
+    public record Page(String text, int start, int next) {
+    }
+
+    private WebPageDocument(String markdown, List<Section> sections) {
+        this.markdown = markdown;
+        this.sections = sections;
+    }
+
+    /**
+     * Split Markdown with ATX headings ({@code # Title}) into sections.
+     */
+    public static WebPageDocument parse(String markdown) {
+        List<int[]> headings = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        boolean inFence = false;
+        int lineStart = 0;
+        while (lineStart < markdown.length()) {
+            int lineEnd = markdown.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = markdown.length();
+            }
+            String line = markdown.substring(lineStart, lineEnd);
+            if (line.startsWith("```") || line.startsWith("~~~")) {
+                inFence = !inFence;
+            } else if (!inFence) {
+                int level = headingLevel(line);
+                if (level > 0) {
+                    headings.add(new int[] {level, lineStart});
+                    titles.add(line.substring(level).trim().replaceAll("\\s+#+$", ""));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        // A heading ends every open section of the same or a deeper level
+        int[] ends = new int[headings.size()];
+        Deque<Integer> open = new ArrayDeque<>();
+        for (int i = 0; i < headings.size(); i++) {
+            while (!open.isEmpty() && headings.get(open.peek())[0] >= headings.get(i)[0]) {
+                ends[open.pop()] = headings.get(i)[1];
+            }
+            open.push(i);
+        }
+        open.forEach(i -> ends[i] = markdown.length());
+
+        List<Section> sections = new ArrayList<>(headings.size());
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < headings.size(); i++) {
+            sections.add(new Section(uniqueId(titles.get(i), ids), headings.get(i)[0], titles.get(i),
+                    headings.get(i)[1], ends[i]));
+        }
+        return new WebPageDocument(markdown, List.copyOf(sections));
+    }
+
+    public String markdown() {
+        return markdown;
+    }
+
+    public int length() {
+        return markdown.length();
+    }
+
+    public List<Section> sections() {
+        return sections;
+    }
+
+    public Section section(String id) {
+        return sections.stream()
+                .filter(section -> section.id().equals(id))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Read up to {@code maxChars} from {@code start}, ending at a line break when there is more to read.
+     *
+     * @param end Where reading stops, the end of the document or of a section
+     */
+    public Page page(int start, int end, int maxChars) {
+        int pageEnd = Math.min(end, start + maxChars);
+        if (pageEnd < end) {
+            int lineEnd = markdown.lastIndexOf('\n', pageEnd - 1);
+            if (lineEnd > start + maxChars / 2) {
+                pageEnd = lineEnd + 1;
+            }
+        }
+        return new Page(markdown.substring(start, pageEnd).strip(), start, pageEnd < end ? pageEnd : -1);
+    }
+
+    // The number of leading # of an ATX heading, 0 for any other line
+    private static int headingLevel(String line) {
+        int level = 0;
+        while (level < line.length() && line.charAt(level) == '#') {
+            level++;
+        }
+        return level >= 1 && level <= 6 && (level == line.length() || line.charAt(level) == ' ') ? level : 0;
+    }
+
+    private static String uniqueId(String title, Set<String> ids) {
+        String id = title.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", "-")
+                .replaceAll("^-+|-+$", "");
+        if (id.length() > 40) {
+            id = id.substring(0, 40).replaceAll("-+$", "");
+        }
+        if (id.isEmpty()) {
+            id = "section";
+        }
+        String unique = id;
+        for (int n = 2; !ids.add(unique); n++) {
+            unique = id + "-" + n;
+        }
+        return unique;
+    }
+}
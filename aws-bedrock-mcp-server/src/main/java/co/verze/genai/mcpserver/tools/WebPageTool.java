@@ -1,32 +1,90 @@
 package co.verze.genai.mcpserver.tools;
 
 import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
+import com.vladsch.flexmark.util.data.MutableDataSet;
 import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import io.modelcontextprotocol.spec.McpSchema.TextContent;
 import io.modelcontextprotocol.spec.McpSchema.Tool;
+import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * WebPageTool provides the content of a web page as Markdown as a tool for the MCP server.
+ * <p>
+ * The work of a call is bounded whatever page is asked for: at most {@code maxBytes} of the page are read and
+ * parsed, the connection is closed once they are, and at most {@code maxChars} characters of Markdown are kept.
+ * A truncated page ends with a note saying so.
+ * <p>
+ * Pages and their Markdown are kept in a {@link WebPageCache}, a fresh page costs neither a fetch nor a conversion
+ * and a page the web server reports unchanged costs no conversion.
+ * <p>
+ * A page longer than {@code pageChars} is returned as an outline of its sections and its first {@code pageChars}.
+ * The model reads on with a section id or a cursor from the same document, kept open for the follow-up calls.
+ */
 @Component
 public class WebPageTool implements Function<Map<String, Object>, CallToolResult> {
     private static final Logger logger = LoggerFactory.getLogger(WebPageTool.class);
+    // Immutable once built, every conversion creates its own state, so one converter serves every call.
+    // At most one blank line in a row, collapsed while the Markdown is written out, and # headings for the outline
+    private static final FlexmarkHtmlConverter CONVERTER = FlexmarkHtmlConverter.builder(new MutableDataSet()
+            .set(FlexmarkHtmlConverter.MAX_BLANK_LINES, 1)
+            .set(FlexmarkHtmlConverter.SETEXT_HEADINGS, false))
+            .build();
+    private static final int MAX_OPEN_DOCUMENTS = 32;
+    private static final int MAX_OUTLINE_SECTIONS = 150;
     private final Tool toolDefinition;
+    private final Limits limits;
+    private final WebPageCache cache;
+    // The documents of the latest calls by URL, read on by the follow-up calls
+    private final Map<String, WebPageDocument> openDocuments = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WebPageDocument> eldest) {
+            return size() > MAX_OPEN_DOCUMENTS;
+        }
+    };
+
+    /**
+     * Limits of a single call.
+     *
+     * @param maxBytes  The most bytes of a page read, the rest is never downloaded
+     * @param maxChars  The most characters of Markdown kept of a page
+     * @param pageChars The most characters of Markdown returned by a call
+     * @param timeout   The time a page may take to download
+     */
+    public record Limits(int maxBytes, int maxChars, int pageChars, Duration timeout) {
+        public static final Limits DEFAULTS = new Limits(5 * 1024 * 1024, 500_000, 8_000, Duration.ofSeconds(15));
+    }
 
     public WebPageTool() {
+        this(Limits.DEFAULTS);
+    }
+
+    public WebPageTool(Limits limits) {
+        this(limits, WebPageCache.Settings.DISABLED);
+    }
+
+    public WebPageTool(Limits limits, WebPageCache.Settings cacheSettings) {
         logger.info("Creating WebPageTool bean");
+        this.limits = limits;
+        this.cache = new WebPageCache(cacheSettings);
 
         this.toolDefinition = new Tool(
             "get_web_page",
-            "Get the the content of a web page as Markdown",
+            "Get the content of a web page as Markdown. A long page comes as an outline of its sections with the "
+                    + "first part of the page, read only the sections you need by calling again with a section id",
             """
             {
                 "type": "object",
@@ -34,6 +92,14 @@ public class WebPageTool implements Function<Map<String, Object>, CallToolResult
                     "url": {
                         "type": "string",
                         "description": "The web page URL"
+                    },
+                    "section": {
+                        "type": "string",
+                        "description": "A section id from the outline of the page, to get only that section"
+                    },
+                    "cursor": {
+                        "type": "integer",
+                        "description": "The cursor given at the end of a part of the page, to get the next part"
                     }
                 },
                 "required": ["url"]
@@ -57,28 +123,31 @@ public class WebPageTool implements Function<Map<String, Object>, CallToolResult
             );
         }
 
-        logger.info("Visiting webpage: " + url);
+        String sectionId = arguments.get("section") instanceof String id && !id.isBlank() ? id.trim() : null;
+        int cursor;
         try {
-            // Send a GET request to the URL with a 30 second timeout
-            Document document = Jsoup.connect(url)
-                    .timeout(15000)
-                    .get();
-
-            // Convert the HTML content to Markdown using Flexmark
-            FlexmarkHtmlConverter converter = FlexmarkHtmlConverter.builder().build();
-            String markdownContent = converter.convert(document).trim();
-
-            // Remove multiple line breaks
-            Pattern pattern = Pattern.compile("\\n{3,}");
-            Matcher matcher = pattern.matcher(markdownContent);
-            markdownContent = matcher.replaceAll("\n\n");
-
-            logger.info("Converted " + markdownContent.split("\\n").length + " lines of markdown");
-            return new CallToolResult(
-                    List.of(new TextContent(markdownContent)),
-                    false
-            );
+            Object argument = arguments.get("cursor");
+            cursor = argument instanceof Number number ? number.intValue()
+                    : argument != null ? Integer.parseInt(argument.toString().trim()) : 0;
+        } catch (NumberFormatException e) {
+            return new CallToolResult(List.of(new TextContent("Error: The cursor must be a number")), true);
+        }
 
+        try {
+            WebPageDocument document = null;
+            if (sectionId != null || cursor != 0) {
+                synchronized (openDocuments) {
+                    document = openDocuments.get(url);
+                }
+            }
+            if (document == null) {
+                logger.info("Visiting webpage: {}", url);
+                document = WebPageDocument.parse(fetchMarkdown(url));
+                synchronized (openDocuments) {
+                    openDocuments.put(url, document);
+                }
+            }
+            return read(document, sectionId, cursor);
         } catch (Exception e) {
             logger.error("Error fetching the webpage", e);
             return new CallToolResult(
@@ -87,4 +156,228 @@ public class WebPageTool implements Function<Map<String, Object>, CallToolResult
             );
         }
     }
+
+    // The whole page when it is short, otherwise the outline and the first part, a section or the part at the cursor
+    private CallToolResult read(WebPageDocument document, String sectionId, int cursor) {
+        if (sectionId == null && cursor == 0 && document.length() <= limits.pageChars()) {
+            return new CallToolResult(List.of(new TextContent(document.markdown())), false);
+        }
+        int start = cursor;
+        int end = document.length();
+        if (sectionId != null) {
+            WebPageDocument.Section section = document.section(sectionId);
+            if (section == null) {
+                return new CallToolResult(List.of(new TextContent("Error: The page has no section '" + sectionId
+                        + "', use a section id from the outline")), true);
+            }
+            start = cursor > section.start() && cursor < section.end() ? cursor : section.start();
+            end = section.end();
+        } else if (cursor < 0 || cursor >= document.length()) {
+            return new CallToolResult(List.of(new TextContent("Error: The cursor must be between 0 and "
+                    + (document.length() - 1))), true);
+        }
+
+        WebPageDocument.Page page = document.page(start, end, limits.pageChars());
+        StringBuilder text = new StringBuilder();
+        if (sectionId == null && cursor == 0) {
+            appendOutline(text, document);
+            text.append("\n\n---\n\n");
+        }
+        text.append(page.text());
+        if (page.next() >= 0) {
+            text.append("\n\n[Characters ").append(start).append(" to ").append(page.next())
+                    .append(" of ").append(document.length()).append(", continue with cursor ").append(page.next());
+            if (sectionId != null) {
+                text.append(" and section '").append(sectionId).append("'");
+            }
+            text.append("]");
+        }
+        logger.info("Returning {} of {} characters of markdown", text.length(), document.length());
+        return new CallToolResult(List.of(new TextContent(text.toString())), false);
+    }
+
+    // Headings indented by level, the deepest levels are left out of a long outline
+    private static void appendOutline(StringBuilder text, WebPageDocument document) {
+        List<WebPageDocument.Section> sections = document.sections();
+        int maxLevel = 6;
+        while (maxLevel > 1 && sections.size() > MAX_OUTLINE_SECTIONS) {
+            int level = maxLevel--;
+            sections = sections.stream().filter(section -> section.level() < level).toList();
+        }
+        text.append("The page has ").append(document.length()).append(" characters in ")
+                .append(document.sections().size()).append(" sections, call get_web_page again with a section id ")
+                .append("to read a section or with the cursor at the end to read on.\n\nOutline:");
+        sections = sections.subList(0, Math.min(sections.size(), MAX_OUTLINE_SECTIONS));
+        int minLevel = sections.stream().mapToInt(WebPageDocument.Section::level).min().orElse(1);
+        for (WebPageDocument.Section section : sections) {
+            text.append("\n").append("  ".repeat(section.level() - minLevel))
+                    .append("- ").append(section.title())
+                    .append(" (section ").append(section.id()).append(", ").append(section.size()).append(" characters)");
+        }
+        if (sections.size() < document.sections().size()) {
+            text.append("\n(").append(document.sections().size() - sections.size()).append(" more sections not shown)");
+        }
+    }
+
+    // The Markdown of a page from the cache, revalidated or fetched
+    private String fetchMarkdown(String url) throws IOException {
+        WebPageCache.Entry cached = cache.get(url);
+        if (cached != null && cache.isFresh(cached)) {
+            logger.info("Serving cached webpage");
+            return markdown(cached);
+        }
+
+        // Reading stops at maxBytes, the page is parsed from what was read
+        Connection connection = Jsoup.connect(url)
+                .timeout((int) limits.timeout().toMillis())
+                .maxBodySize(limits.maxBytes());
+        if (cached != null && cached.etag() != null) {
+            connection.header("If-None-Match", cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            connection.header("If-Modified-Since", cached.lastModified());
+        }
+        Connection.Response response = connection.execute();
+        if (response.statusCode() == 304 && cached != null) {
+            logger.info("Webpage not modified, serving cached webpage");
+            cache.revalidated(cached);
+            return markdown(cached);
+        }
+
+        byte[] body = response.bufferUp().bodyAsBytes();
+        boolean clipped = body.length >= limits.maxBytes();
+        Document document = response.parse();
+
+        Markdown markdown = convert(document, clipped);
+        logger.info("Converted {} lines of markdown{}", markdown.lines(), markdown.truncated() ? ", truncated" : "");
+        String cacheControl = response.header("Cache-Control");
+        if (cacheControl == null || !cacheControl.contains("no-store")) {
+            cache.put(new WebPageCache.Entry(url, System.currentTimeMillis(), response.header("ETag"),
+                    response.header("Last-Modified"), response.charset(), clipped, limits.maxChars(),
+                    markdown.text(), ByteBuffer.wrap(body)));
+        }
+        return markdown.text();
+    }
+
+    public WebPageCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Convert a parsed HTML page to Markdown.
+     *
+     * @param document The parsed page
+     * @return The page content as Markdown, at most {@code maxChars} characters and a truncation note
+     */
+    public String toMarkdown(Document document) {
+        return convert(document, false).text();
+    }
+
+    // The Markdown of a cached page, converted again from the raw page only when the character budget changed
+    private String markdown(WebPageCache.Entry cached) throws IOException {
+        if (cached.maxChars() == limits.maxChars()) {
+            return cached.markdown();
+        }
+        ByteBuffer raw = cached.raw();
+        byte[] body = new byte[raw.remaining()];
+        raw.duplicate().get(body);
+        Document document = Jsoup.parse(new ByteArrayInputStream(body), cached.charset(), cached.url());
+        Markdown markdown = convert(document, cached.clipped());
+        cache.put(new WebPageCache.Entry(cached.url(), cached.fetchedAt(), cached.etag(), cached.lastModified(),
+                cached.charset(), cached.clipped(), limits.maxChars(), markdown.text(), ByteBuffer.wrap(body)));
+        return markdown.text();
+    }
+
+    // A clipped page gets a note that it was cut short
+    private Markdown convert(Document document, boolean clipped) {
+        String clippedNote = clipped
+                ? "[Truncated: only the first " + limits.maxBytes() + " bytes of the page were read]"
+                : null;
+        MarkdownBuffer buffer = new MarkdownBuffer(limits.maxChars());
+        try {
+            CONVERTER.convert(document, buffer, 0);
+        } catch (MarkdownBuffer.Full e) {
+            // Everything after the budget would be thrown away, so copying stops here
+        }
+        return buffer.toMarkdown(clippedNote);
+    }
+
+    private record Markdown(String text, int lines, boolean truncated) {
+    }
+
+    /**
+     * Collects the Markdown up to a character budget, without the leading blank lines.
+     */
+    private static class MarkdownBuffer implements Appendable {
+        private final StringBuilder text = new StringBuilder();
+        private final int maxChars;
+        private boolean truncated;
+
+        MarkdownBuffer(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) {
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            if (text.isEmpty() && Character.isWhitespace(c)) {
+                return this;
+            }
+            if (text.length() >= maxChars) {
+                truncated = true;
+                throw Full.INSTANCE;
+            }
+            text.append(c);
+            return this;
+        }
+
+        Markdown toMarkdown(String clippedNote) {
+            String note = truncated
+                    ? "[Truncated: the page is longer than " + maxChars + " characters]"
+                    : clippedNote;
+            trimEnd();
+            if (note != null) {
+                // Cut at the last line break so no line, link or table row is left half written
+                int lineEnd = text.lastIndexOf("\n");
+                if (lineEnd > text.length() / 2) {
+                    text.setLength(lineEnd);
+                    trimEnd();
+                }
+            }
+            int lines = text.isEmpty() ? 0 : (int) text.chars().filter(c -> c == '\n').count() + 1;
+            if (note != null) {
+                text.append("\n\n").append(note);
+            }
+            return new Markdown(text.toString(), lines, note != null);
+        }
+
+        private void trimEnd() {
+            int end = text.length();
+            while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            text.setLength(end);
+        }
+
+        // Thrown to stop copying once the budget is used up, without a stack trace as it is not an error
+        static class Full extends RuntimeException {
+            static final Full INSTANCE = new Full();
+
+            private Full() {
+                super("Markdown budget used up", null, false, false);
+            }
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package co.verze.genai.mcpserver.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeatherCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void testLocationsAreNormalized() throws Exception {
+        WeatherCache cache = cache(Duration.ofMinutes(5), Duration.ZERO, location -> response(location));
+
+        WeatherTool.Response first = get(cache, "New York");
+        WeatherTool.Response second = get(cache, "  new   YORK ");
+
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getStats().hits());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneUpstreamCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherCache cache = cache(Duration.ofMinutes(5), Duration.ZERO, location -> {
+            release.await();
+            return response(location);
+        });
+
+        CompletableFuture<WeatherTool.Response> first = cache.get("London");
+        CompletableFuture<WeatherTool.Response> second = cache.get("London");
+        assertEquals(1, cache.getStats().coalesced());
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testStaleEntryIsServedWhenUpstreamFails() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean();
+        WeatherCache cache = cache(Duration.ofMillis(1), Duration.ofMinutes(5), location -> {
+            if (failing.get()) {
+                throw new IOException("Unexpected response code: 503");
+            }
+            return response(location);
+        });
+
+        WeatherTool.Response fresh = get(cache, "Paris");
+        Thread.sleep(5);
+        failing.set(true);
+
+        assertSame(fresh, get(cache, "Paris"));
+        assertEquals(1, cache.getStats().staleHits());
+    }
+
+    @Test
+    void testFailureWithoutEntryIsThrown() {
+        WeatherCache cache = cache(Duration.ofMinutes(5), Duration.ofMinutes(5), location -> {
+            throw new IOException("Unexpected response code: 400");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> cache.get("Nowhere").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals(0, cache.getStats().size());
+    }
+
+    private WeatherCache cache(Duration ttl, Duration staleFor, BlockingLoader loader) {
+        WeatherCache.Settings settings = new WeatherCache.Settings(ttl, Duration.ZERO, staleFor, Duration.ofSeconds(1), 10);
+        return new WeatherCache(settings, location -> {
+            calls.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return loader.load(location);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        });
+    }
+
+    private static WeatherTool.Response get(WeatherCache cache, String location) throws Exception {
+        return cache.get(location).get(5, TimeUnit.SECONDS);
+    }
+
+    // The upstream call as the tests write it, run asynchronously by the cache loader
+    private interface BlockingLoader {
+        WeatherTool.Response load(String location) throws Exception;
+    }
+
+    private static WeatherTool.Response response(String location) {
+        return new WeatherTool.Response(
+                new WeatherTool.Response.Location(location, "Somewhere"),
+                new WeatherTool.Response.Current(20.0, 0.0, new WeatherTool.Response.Condition("Sunny")));
+    }
+}
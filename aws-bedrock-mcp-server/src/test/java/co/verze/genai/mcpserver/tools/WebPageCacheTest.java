@@ -0,0 +1,97 @@
+package co.verze.genai.mcpserver.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebPageCacheTest {
+
+    @Test
+    void testPagesSurviveRestart() throws Exception {
+        Path directory = Files.createTempDirectory("web-page-cache");
+        // A map threshold of 0 reads every entry memory-mapped
+        WebPageCache.Settings settings = new WebPageCache.Settings(directory, 1_000_000, Duration.ofMinutes(5), 0);
+        new WebPageCache(settings).put(entry("https://example.com/docs", "\"v1\"", "<p>Docs</p>", "Docs"));
+
+        WebPageCache restarted = new WebPageCache(settings);
+        WebPageCache.Entry entry = restarted.get("https://example.com/docs");
+
+        assertEquals("Docs", entry.markdown());
+        assertEquals("\"v1\"", entry.etag());
+        assertNull(entry.lastModified());
+        assertEquals("<p>Docs</p>", StandardCharsets.UTF_8.decode(entry.raw()).toString());
+        assertTrue(restarted.isFresh(entry));
+        assertEquals(1, restarted.getStats().hits());
+    }
+
+    @Test
+    void testRevalidationMakesPageFresh() throws Exception {
+        WebPageCache cache = new WebPageCache(new WebPageCache.Settings(Files.createTempDirectory("web-page-cache"),
+                1_000_000, Duration.ofMinutes(5), 1_000_000));
+        WebPageCache.Entry stale = new WebPageCache.Entry("https://example.com/", 0, "\"v1\"", null, null, false,
+                100, "Home", ByteBuffer.wrap("<p>Home</p>".getBytes(StandardCharsets.UTF_8)));
+        cache.put(stale);
+        assertFalse(cache.isFresh(cache.get("https://example.com/")));
+
+        cache.revalidated(stale);
+
+        assertTrue(cache.isFresh(cache.get("https://example.com/")));
+        assertEquals(1, cache.getStats().revalidated());
+    }
+
+    @Test
+    void testLeastRecentlyUsedPagesAreEvicted() throws Exception {
+        WebPageCache cache = new WebPageCache(new WebPageCache.Settings(Files.createTempDirectory("web-page-cache"),
+                500, Duration.ofMinutes(5), 1_000_000));
+        String html = "<p>" + "x".repeat(100) + "</p>";
+        cache.put(entry("https://example.com/1", null, html, "one"));
+        cache.put(entry("https://example.com/2", null, html, "two"));
+        cache.get("https://example.com/1");
+
+        cache.put(entry("https://example.com/3", null, html, "three"));
+
+        assertNotNull(cache.get("https://example.com/1"));
+        assertNull(cache.get("https://example.com/2"));
+        assertNotNull(cache.get("https://example.com/3"));
+        assertEquals(1, cache.getStats().evictions());
+        assertTrue(cache.getStats().bytes() <= 500);
+    }
+
+    @Test
+    void testPagesAreSharedBetweenProcesses() throws Exception {
+        Path directory = Files.createTempDirectory("web-page-cache");
+        WebPageCache.Settings settings = new WebPageCache.Settings(directory, 1_000_000, Duration.ofMinutes(5), 1_000_000);
+        WebPageCache first = new WebPageCache(settings);
+        WebPageCache second = new WebPageCache(settings);
+
+        first.put(entry("https://example.com/shared", null, "<p>Shared</p>", "Shared"));
+
+        assertEquals("Shared", second.get("https://example.com/shared").markdown());
+        assertEquals(1, second.getStats().entries());
+    }
+
+    @Test
+    void testOnlyStaleTempFilesAreDeleted() throws Exception {
+        Path directory = Files.createTempDirectory("web-page-cache");
+        Path writing = Files.createFile(directory.resolve("writing.tmp"));
+        Path stale = Files.createFile(directory.resolve("stale.tmp"));
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(1).toMillis()));
+
+        new WebPageCache(new WebPageCache.Settings(directory, 1_000_000, Duration.ofMinutes(5), 1_000_000));
+
+        assertTrue(Files.exists(writing));
+        assertFalse(Files.exists(stale));
+    }
+
+    private static WebPageCache.Entry entry(String url, String etag, String html, String markdown) {
+        return new WebPageCache.Entry(url, System.currentTimeMillis(), etag, null, "UTF-8", false, 100, markdown,
+                ByteBuffer.wrap(html.getBytes(StandardCharsets.UTF_8)));
+    }
+}
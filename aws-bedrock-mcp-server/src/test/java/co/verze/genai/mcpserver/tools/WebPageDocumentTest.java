@@ -0,0 +1,60 @@
+package co.verze.genai.mcpserver.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebPageDocumentTest {
+
+    private static final String MARKDOWN = """
+            # Guide
+
+            Intro
+
+            ## Install
+
+            Run the installer.
+
+            ```
+            # not a heading
+            ```
+
+            ## Install
+
+            Again.
+
+            # Reference
+
+            Details.
+            """;
+
+    @Test
+    void testSectionsEndAtNextHeadingOfSameLevel() {
+        WebPageDocument document = WebPageDocument.parse(MARKDOWN);
+
+        List<String> ids = document.sections().stream().map(WebPageDocument.Section::id).toList();
+        assertEquals(List.of("guide", "install", "install-2", "reference"), ids);
+
+        WebPageDocument.Section guide = document.section("guide");
+        assertEquals(document.section("reference").start(), guide.end());
+        WebPageDocument.Section install = document.section("install");
+        String text = document.page(install.start(), install.end(), 1000).text();
+        assertTrue(text.startsWith("## Install"));
+        assertTrue(text.contains("# not a heading"));
+        assertFalse(text.contains("Again."));
+    }
+
+    @Test
+    void testPagesEndAtLineBreaks() {
+        WebPageDocument document = WebPageDocument.parse("line one\nline two\nline three\n");
+
+        WebPageDocument.Page first = document.page(0, document.length(), 15);
+        WebPageDocument.Page second = document.page(first.next(), document.length(), 15);
+
+        assertEquals("line one", first.text());
+        assertEquals("line two", second.text());
+        assertEquals(18, second.next());
+    }
+}
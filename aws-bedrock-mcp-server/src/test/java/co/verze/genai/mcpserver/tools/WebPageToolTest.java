@@ -0,0 +1,39 @@
+package co.verze.genai.mcpserver.tools;
+
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebPageToolTest {
+
+    @Test
+    void testBlankLinesAreCollapsed() {
+        WebPageTool webPageTool = new WebPageTool(new WebPageTool.Limits(1024, 1000, 1000, Duration.ofSeconds(1)));
+
+        String markdown = webPageTool.toMarkdown(Jsoup.parse(
+                "<h1>Title</h1><br><br><br><br><p>First</p><div><br><br></div><p>Second</p>"));
+
+        assertTrue(markdown.startsWith("# Title"));
+        assertTrue(markdown.endsWith("Second"));
+        assertFalse(markdown.contains("\n\n\n"));
+    }
+
+    @Test
+    void testLongPageIsTruncatedAtLineBreak() {
+        WebPageTool webPageTool = new WebPageTool(new WebPageTool.Limits(1024, 200, 200, Duration.ofSeconds(1)));
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            html.append("<p>Paragraph number ").append(i).append("</p>");
+        }
+
+        String markdown = webPageTool.toMarkdown(Jsoup.parse(html.toString()));
+
+        String content = markdown.substring(0, markdown.indexOf("\n\n[Truncated"));
+        assertTrue(content.length() <= 200);
+        assertTrue(content.lines().allMatch(line -> line.isEmpty() || line.matches("Paragraph number \\d+")));
+        assertTrue(markdown.endsWith("[Truncated: the page is longer than 200 characters]"));
+    }
+}